@@ -0,0 +1,258 @@
+package ru.vmochalov.vkchart;
+
+import android.app.Activity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import ru.vmochalov.vkchart.chart.data.ChartDataSource;
+import ru.vmochalov.vkchart.chart.data.ChartLoader;
+import ru.vmochalov.vkchart.chart.data.FileTailDataSource;
+import ru.vmochalov.vkchart.chart.data.LiveChart;
+import ru.vmochalov.vkchart.chart.data.LocalSocketDataSource;
+import ru.vmochalov.vkchart.chart.view.ChartListView;
+import ru.vmochalov.vkchart.chart.view.ChartViewState;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+
+/**
+ * Tools of the debug build kept out of the release one: live chart and streaming benchmarks and frame
+ * metrics with their overlay, in the overflow menu of ChartActivity, and the cold start timings of the charts.
+ * The release build has a DebugTools of its own, which adds nothing.
+ */
+public class DebugTools {
+
+    private static final String TAG = "DebugTools";
+
+    private static final int LIVE_CHART_CAPACITY = 4096;
+    private static final int LIVE_CHART_APPENDS_PER_SECOND = 500;
+    private static final long LIVE_CHART_BENCHMARK_DURATION_MILLIS = 10000;
+    private static final int STREAMING_POINTS_PER_SECOND = 2000;
+    private static final String STREAMING_SOCKET_NAME = "ru.vmochalov.vkchart.points";
+    private static final String STREAMING_FILE_NAME = "points.txt";
+    private static final long METRICS_OVERLAY_UPDATE_INTERVAL_MILLIS = 500;
+
+    private Activity activity;
+    private ScrollView scrollView;
+    private ChartListView chartListView;
+    private TextView metricsOverlay;
+
+    private LiveChartBenchmark liveChartBenchmark;
+    private LocalChartProducer localChartProducer;
+    private ChartDataSource chartDataSource;
+    private ChartMetrics chartMetrics;
+    private ChartLoader chartLoader;
+
+    private Runnable metricsOverlayUpdate = new Runnable() {
+        @Override
+        public void run() {
+            metricsOverlay.setText(chartMetrics.dump());
+            metricsOverlay.postDelayed(this, METRICS_OVERLAY_UPDATE_INTERVAL_MILLIS);
+        }
+    };
+
+    public DebugTools(Activity activity, ScrollView scrollView, ChartListView chartListView, TextView metricsOverlay) {
+        this.activity = activity;
+        this.scrollView = scrollView;
+        this.chartListView = chartListView;
+        this.metricsOverlay = metricsOverlay;
+    }
+
+    public void onCreateOptionsMenu(Menu menu) {
+        activity.getMenuInflater().inflate(R.menu.debug_tools, menu);
+    }
+
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.liveChartBenchmark) {
+            startLiveChartBenchmark();
+
+            return true;
+        } else if (item.getItemId() == R.id.socketStreamingBenchmark || item.getItemId() == R.id.fileStreamingBenchmark) {
+            startStreamingBenchmark(item.getItemId() == R.id.socketStreamingBenchmark);
+
+            return true;
+        } else if (item.getItemId() == R.id.frameMetrics) {
+            item.setChecked(!item.isChecked());
+            setFrameMetricsEnabled(item.isChecked());
+
+            return true;
+        }
+        return false;
+    }
+
+    // logs how long the charts took to load, once every chart is read
+    public void onChartsLoaded(ChartLoader chartLoader) {
+        this.chartLoader = chartLoader;
+
+        Log.d(TAG, getChartLoadingTimings());
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        if (chartLoader != null) {
+            writer.println(prefix + getChartLoadingTimings());
+        }
+
+        writer.println(prefix + "Frame metrics:");
+        writer.println(chartMetrics != null ? chartMetrics.dump() : prefix + "off");
+    }
+
+    public void release() {
+        stopLiveChartBenchmark();
+        setFrameMetricsEnabled(false);
+    }
+
+    private String getChartLoadingTimings() {
+        return "Charts loaded from " + (chartLoader.isLoadedFromCache() ? "cache" : "json") + ": the first one in "
+                + chartLoader.getFirstChartMillis() + " ms, all of them in " + chartLoader.getLoadingMillis() + " ms";
+    }
+
+    private void startLiveChartBenchmark() {
+        stopLiveChartBenchmark();
+
+        startLiveChartBenchmark(addLiveChart(), LIVE_CHART_APPENDS_PER_SECOND);
+    }
+
+    // a stand-in producer streams points through a data source, the benchmark only measures
+    private void startStreamingBenchmark(boolean useSocket) {
+        stopLiveChartBenchmark();
+
+        LiveChart liveChart = addLiveChart();
+        long pointsCount = STREAMING_POINTS_PER_SECOND * LIVE_CHART_BENCHMARK_DURATION_MILLIS / 1000;
+
+        localChartProducer = new LocalChartProducer(liveChart.getLinesCount(), STREAMING_POINTS_PER_SECOND, pointsCount);
+
+        ChartDataSource.Callback callback = new ChartDataSource.Callback() {
+            @Override
+            public void onSourceFinished() {
+                logDataSourceStats();
+            }
+
+            @Override
+            public void onSourceFailed(Exception ex) {
+                Log.e(TAG, "Error while streaming points: " + ex.getMessage());
+            }
+        };
+
+        try {
+            if (useSocket) {
+                localChartProducer.startServingSocket(STREAMING_SOCKET_NAME);
+                chartDataSource = new LocalSocketDataSource(liveChart, STREAMING_SOCKET_NAME, callback);
+            } else {
+                File file = new File(activity.getCacheDir(), STREAMING_FILE_NAME);
+                localChartProducer.startWritingFile(file);
+                chartDataSource = new FileTailDataSource(liveChart, file, true, callback);
+            }
+        } catch (IOException ex) {
+            Log.e(TAG, "Error while starting producer: " + ex.getMessage());
+            return;
+        }
+
+        chartDataSource.start();
+        startLiveChartBenchmark(liveChart, 0);
+    }
+
+    private LiveChart addLiveChart() {
+        LiveChart liveChart = new LiveChart(
+                Arrays.asList("y0", "y1"),
+                Arrays.asList("Live #0", "Live #1"),
+                new int[]{0xff3dc23f, 0xfff34c44},
+                LIVE_CHART_CAPACITY
+        );
+
+        // the frame touching the right edge follows the latest points
+        ChartViewState state = new ChartViewState(liveChart.getLinesCount());
+        state.setRange(0.75, 1);
+
+        chartListView.addChart(liveChart, state);
+
+        scrollView.post(new Runnable() {
+            @Override
+            public void run() {
+                scrollView.fullScroll(View.FOCUS_DOWN);
+            }
+        });
+
+        return liveChart;
+    }
+
+    private void startLiveChartBenchmark(LiveChart liveChart, int appendsPerSecond) {
+        liveChartBenchmark = new LiveChartBenchmark(
+                liveChart,
+                appendsPerSecond,
+                LIVE_CHART_BENCHMARK_DURATION_MILLIS,
+                activity.getWindowManager().getDefaultDisplay().getRefreshRate(),
+                new LiveChartBenchmark.OnBenchmarkFinishedListener() {
+                    @Override
+                    public void onBenchmarkFinished(double appendsPerSecond, int framesCount, int droppedFramesCount) {
+                        logDataSourceStats();
+
+                        Toast.makeText(
+                                activity,
+                                activity.getString(R.string.live_chart_benchmark_result, Math.round(appendsPerSecond), droppedFramesCount),
+                                Toast.LENGTH_LONG
+                        ).show();
+                    }
+                }
+        );
+        liveChartBenchmark.start();
+    }
+
+    private void logDataSourceStats() {
+        if (chartDataSource == null) return;
+
+        Log.d(
+                TAG,
+                "Data source received " + chartDataSource.getReceivedPointsCount() + " points, "
+                        + chartDataSource.getMalformedLinesCount() + " malformed lines, "
+                        + chartDataSource.getOutOfOrderLinesCount() + " out of order lines, waited for the main thread "
+                        + chartDataSource.getBackpressureWaitNanos() / 1000000 + " ms"
+        );
+    }
+
+    private void stopLiveChartBenchmark() {
+        if (liveChartBenchmark != null) {
+            liveChartBenchmark.stop();
+            liveChartBenchmark = null;
+        }
+
+        if (chartDataSource != null) {
+            chartDataSource.cancel();
+            chartDataSource = null;
+        }
+
+        if (localChartProducer != null) {
+            localChartProducer.stop();
+            localChartProducer = null;
+        }
+    }
+
+    private void setFrameMetricsEnabled(boolean enabled) {
+        if (enabled == (chartMetrics != null)) return;
+
+        if (enabled) {
+            chartMetrics = new ChartMetrics(activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+            chartListView.setMetrics(chartMetrics);
+
+            metricsOverlay.setVisibility(View.VISIBLE);
+            metricsOverlay.post(metricsOverlayUpdate);
+        } else {
+            Log.d(TAG, "Frame metrics:\n" + chartMetrics.dump());
+
+            metricsOverlay.removeCallbacks(metricsOverlayUpdate);
+            metricsOverlay.setVisibility(View.GONE);
+
+            chartListView.setMetrics(null);
+            chartMetrics.stop();
+            chartMetrics = null;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package ru.vmochalov.vkchart;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import ru.vmochalov.vkchart.chart.data.LiveChart;
+
+/**
+ * Measures how many points per second a live chart on screen takes and how many frames come
+ * later than expected meanwhile. Points are either generated at a fixed rate, one append per point
+ * as a stream delivered to the main thread would do, or come from elsewhere, e.g. a ChartDataSource.
+ */
+public class LiveChartBenchmark implements Choreographer.FrameCallback {
+
+    private static final String TAG = "LiveChartBenchmark";
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    // a frame is dropped when the next one comes this many intervals later
+    private static final float DROPPED_FRAME_THRESHOLD = 1.5f;
+
+    public interface OnBenchmarkFinishedListener {
+        void onBenchmarkFinished(double appendsPerSecond, int framesCount, int droppedFramesCount);
+    }
+
+    private LiveChart chart;
+    private int appendsPerSecond;
+    private long durationNanos;
+    private long frameIntervalNanos;
+    private OnBenchmarkFinishedListener listener;
+
+    private Random random = new Random();
+    private int[] values;
+    private long firstTimestamp = System.currentTimeMillis();
+
+    private long startNanos;
+    private long previousFrameNanos;
+    private long initialAppendedCount;
+    private long generatedCount;
+    private int framesCount;
+    private int droppedFramesCount;
+
+    private boolean running;
+
+    // appendsPerSecond 0 only measures the points appended by others
+    public LiveChartBenchmark(
+            LiveChart chart,
+            int appendsPerSecond,
+            long durationMillis,
+            float refreshRate,
+            OnBenchmarkFinishedListener listener
+    ) {
+        this.chart = chart;
+        this.appendsPerSecond = appendsPerSecond;
+        this.durationNanos = durationMillis * 1000000L;
+        this.frameIntervalNanos = (long) (1000000000L / refreshRate);
+        this.listener = listener;
+
+        values = new int[chart.getLinesCount()];
+        Arrays.fill(values, 100);
+    }
+
+    public void start() {
+        running = true;
+        startNanos = 0;
+        initialAppendedCount = chart.getAppendedPointsCount();
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        running = false;
+
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+
+        if (startNanos == 0) {
+            startNanos = frameTimeNanos;
+        } else {
+            long interval = frameTimeNanos - previousFrameNanos;
+
+            framesCount++;
+
+            if (interval > frameIntervalNanos * DROPPED_FRAME_THRESHOLD) {
+                droppedFramesCount += Math.round((float) interval / frameIntervalNanos) - 1;
+            }
+        }
+
+        previousFrameNanos = frameTimeNanos;
+
+        long elapsedNanos = frameTimeNanos - startNanos;
+        long targetCount = elapsedNanos * appendsPerSecond / 1000000000L;
+
+        while (generatedCount < targetCount) {
+            appendPoint();
+        }
+
+        if (elapsedNanos >= durationNanos) {
+            finish(elapsedNanos);
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private void appendPoint() {
+        // a random walk per line, kept positive
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.max(values[i] + random.nextInt(21) - 10, 0);
+        }
+
+        chart.append(firstTimestamp + generatedCount * DAY_MILLIS, values);
+
+        generatedCount++;
+    }
+
+    private void finish(long elapsedNanos) {
+        running = false;
+
+        long appendedCount = chart.getAppendedPointsCount() - initialAppendedCount;
+        double measuredAppendsPerSecond = appendedCount * 1e9 / elapsedNanos;
+
+        Log.d(TAG, "Appended " + appendedCount + " points, " + Math.round(measuredAppendsPerSecond) + " per second, "
+                + droppedFramesCount + " of " + (framesCount + droppedFramesCount) + " frames dropped");
+
+        if (listener != null) {
+            listener.onBenchmarkFinished(measuredAppendsPerSecond, framesCount, droppedFramesCount);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package ru.vmochalov.vkchart;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Stand-in for a process producing metrics on the device. Writes random walk points in the format
+ * of ChartDataSource at a fixed rate, either appending them to a file or serving one client
+ * of a local socket, and stops after the given number of points. Part of the debug build only,
+ * where it feeds the streaming benchmarks of DebugTools.
+ */
+public class LocalChartProducer {
+
+    private static final String THREAD_NAME = "LocalChartProducer";
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private int linesCount;
+    private int pointsPerSecond;
+    private long pointsCount;
+
+    private volatile boolean stopped;
+    private volatile LocalServerSocket serverSocket;
+
+    private Thread thread;
+
+    public LocalChartProducer(int linesCount, int pointsPerSecond, long pointsCount) {
+        this.linesCount = linesCount;
+        this.pointsPerSecond = pointsPerSecond;
+        this.pointsCount = pointsCount;
+    }
+
+    // the file is truncated right away, so a reader may open it as soon as this returns
+    public void startWritingFile(File file) throws IOException {
+        final OutputStream output = new FileOutputStream(file, false);
+
+        start(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    try {
+                        produce(output);
+                    } finally {
+                        output.close();
+                    }
+                } catch (IOException ex) {
+                    // the consumer sees the stream end
+                }
+            }
+        });
+    }
+
+    // the socket is created right away, so a client may connect as soon as this returns
+    public void startServingSocket(String socketName) throws IOException {
+        serverSocket = new LocalServerSocket(socketName);
+
+        start(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LocalSocket socket = serverSocket.accept();
+
+                    try {
+                        produce(socket.getOutputStream());
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException ex) {
+                    // the consumer sees the stream end
+                } finally {
+                    closeServerSocket();
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        stopped = true;
+
+        closeServerSocket();
+
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void start(Runnable runnable) {
+        thread = new Thread(runnable, THREAD_NAME);
+        thread.start();
+    }
+
+    private void produce(OutputStream stream) throws IOException {
+        OutputStream output = new BufferedOutputStream(stream);
+        Random random = new Random();
+        int[] values = new int[linesCount];
+        Arrays.fill(values, 100);
+        long firstTimestamp = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        StringBuilder line = new StringBuilder();
+
+        for (long i = 0; i < pointsCount && !stopped; i++) {
+            // points are written in bursts when the thread wakes up, as a real producer would do
+            long dueNanos = startNanos + i * 1000000000L / pointsPerSecond;
+            long delayNanos = dueNanos - System.nanoTime();
+
+            if (delayNanos > 1000000) {
+                output.flush();
+
+                try {
+                    Thread.sleep(delayNanos / 1000000);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+
+            line.setLength(0);
+            line.append(firstTimestamp + i * DAY_MILLIS);
+
+            for (int j = 0; j < linesCount; j++) {
+                values[j] = Math.max(values[j] + random.nextInt(21) - 10, 0);
+                line.append(' ').append(values[j]);
+            }
+
+            line.append('\n');
+
+            // blocks while the consumer is behind and the socket buffer is full
+            output.write(line.toString().getBytes());
+        }
+
+        output.flush();
+    }
+
+    private void closeServerSocket() {
+        LocalServerSocket serverSocket = this.serverSocket;
+
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ex) {
+                // already closed
+            }
+        }
+    }
+
+}
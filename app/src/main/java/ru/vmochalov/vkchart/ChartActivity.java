@@ -1,30 +1,51 @@
 package ru.vmochalov.vkchart;
 
 import android.app.Activity;
+import android.content.res.AssetManager;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.ScrollView;
+import android.widget.TextView;
 
-import org.json.JSONException;
-
+import java.io.FileDescriptor;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import ru.vmochalov.vkchart.chart.data.Chart;
-import ru.vmochalov.vkchart.chart.view.ChartView;
+import ru.vmochalov.vkchart.chart.data.ChartLoader;
+import ru.vmochalov.vkchart.chart.data.DetailChartLoader;
+import ru.vmochalov.vkchart.chart.view.ChartListView;
 import ru.vmochalov.vkchart.chart.view.common.GestureDirectionListener;
-import ru.vmochalov.vkchart.utils.JsonParsingUtil;
-import ru.vmochalov.vkchart.utils.RawResourcesUtil;
 
 public class ChartActivity extends Activity {
 
+    // assets/detail_charts/<chart number>/yyyy-MM/dd.json, like the contest data
+    private static final String DETAIL_CHARTS_DIRECTORY = "detail_charts";
+    private static final int DETAIL_CHARTS_CACHE_MEMORY_FRACTION = 8;
+
     private boolean nightModeOn;
 
     private ScrollView scrollView;
     private LinearLayout chartContainer;
+    private ChartListView chartListView;
+    private View chartPlaceholder;
+    private TextView metricsOverlay;
+
+    private ChartLoader chartLoader;
+    private DetailChartLoader detailChartLoader;
+    // numbers of the charts which have a directory of detail charts in the assets
+    private Set<String> detailChartNumbers = new HashSet<>();
+    // tools of the debug build, nothing in the release one
+    private DebugTools debugTools;
 
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -36,8 +57,30 @@ public class ChartActivity extends Activity {
         onNightModeChanged(nightModeOn);
     }
 
+    protected void onDestroy() {
+        super.onDestroy();
+
+        if (chartLoader != null) {
+            chartLoader.cancel();
+        }
+
+        if (detailChartLoader != null) {
+            detailChartLoader.release();
+        }
+
+        debugTools.release();
+    }
+
+    // adb shell dumpsys activity ru.vmochalov.chart/ru.vmochalov.vkchart.ChartActivity
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+
+        debugTools.dump(prefix, writer);
+    }
+
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.night_mode, menu);
+        debugTools.onCreateOptionsMenu(menu);
         return true;
     }
 
@@ -46,53 +89,95 @@ public class ChartActivity extends Activity {
             nightModeOn = !nightModeOn;
             onNightModeChanged(nightModeOn);
 
+            return true;
+        } else if (item.getItemId() == R.id.renderThread) {
+            item.setChecked(!item.isChecked());
+            chartListView.setRenderThreadEnabled(item.isChecked());
+
             return true;
         }
-        return false;
+        return debugTools.onOptionsItemSelected(item);
     }
 
     private void initViews() {
         scrollView = findViewById(R.id.scrollView);
         chartContainer = findViewById(R.id.chartContainer);
+        chartListView = findViewById(R.id.chartListView);
+        metricsOverlay = findViewById(R.id.metricsOverlay);
+
+        debugTools = new DebugTools(this, scrollView, chartListView, metricsOverlay);
 
         initChartViews();
     }
 
     private void initChartViews() {
-        try {
-            String chartsInput = RawResourcesUtil.getRawResourceAsString(getResources(), R.raw.charts_input);
+        chartListView.setGestureDirectionListener(new GestureDirectionListener() {
+            @Override
+            public void onGestureDirectionChanged(boolean isHorizontalMovement) {
+                scrollView.requestDisallowInterceptTouchEvent(isHorizontalMovement);
+            }
+        });
+
+        final AssetManager assets = getAssets();
+        long detailChartsCacheSize = Runtime.getRuntime().maxMemory() / DETAIL_CHARTS_CACHE_MEMORY_FRACTION;
 
-            for (String json : JsonParsingUtil.getRawJsonObjectSources(chartsInput)) {
-                chartContainer.addView(createChartView(Chart.fromJson(json)));
+        detailChartLoader = new DetailChartLoader(new DetailChartLoader.Source() {
+            @Override
+            public InputStream open(String path) throws IOException {
+                return assets.open(path);
             }
+        }, (int) Math.min(detailChartsCacheSize, Integer.MAX_VALUE));
+        chartListView.setDetailChartLoader(detailChartLoader);
 
+        // a chart without details is not registered, so tapping it never reads a missing asset
+        try {
+            String[] directories = assets.list(DETAIL_CHARTS_DIRECTORY);
+
+            if (directories != null) {
+                detailChartNumbers.addAll(Arrays.asList(directories));
+            }
         } catch (IOException ex) {
-            Log.e(this.getClass().getName(), "Error while reading charts input: " + ex.getMessage());
-        } catch (JSONException ex) {
-            Log.e(this.getClass().getName(), "Error while parsing charts input: " + ex.getMessage());
+            Log.e(ChartActivity.this.getClass().getName(), "Error while listing detail charts: " + ex.getMessage());
         }
-    }
 
-    private ChartView createChartView(Chart chart) {
-        ChartView chartView = new ChartView(this);
-        chartView.setChart(chart);
-        chartView.setGestureDirectionListener(new GestureDirectionListener() {
+        chartPlaceholder = LayoutInflater.from(this).inflate(R.layout.layout_chart_placeholder, chartContainer, false);
+        chartContainer.addView(chartPlaceholder);
+
+        chartLoader = new ChartLoader(getResources(), R.raw.charts_input, getCacheDir(), new ChartLoader.Callback() {
             @Override
-            public void onGestureDirectionChanged(boolean isHorizontalMovement) {
-                scrollView.requestDisallowInterceptTouchEvent(isHorizontalMovement);
+            public void onChartLoaded(Chart chart) {
+                // charts are appended one by one above the placeholder while the rest is parsed
+                String chartNumber = String.valueOf(chartListView.getChartsCount() + 1);
+
+                if (detailChartNumbers.contains(chartNumber)) {
+                    detailChartLoader.setDirectory(chart, DETAIL_CHARTS_DIRECTORY + "/" + chartNumber);
+                }
+                chartListView.addChart(chart);
+            }
+
+            @Override
+            public void onLoadingFinished() {
+                removeChartPlaceholder();
+
+                debugTools.onChartsLoaded(chartLoader);
+            }
+
+            @Override
+            public void onLoadingFailed(Exception ex) {
+                Log.e(ChartActivity.this.getClass().getName(), "Error while loading charts input: " + ex.getMessage());
+
+                removeChartPlaceholder();
             }
         });
+        chartLoader.start();
+    }
 
-        return chartView;
+    private void removeChartPlaceholder() {
+        chartContainer.removeView(chartPlaceholder);
     }
 
     private void onNightModeChanged(boolean nightModeOn) {
-        for (int i = 0; i < chartContainer.getChildCount(); i++) {
-            View child = chartContainer.getChildAt(i);
-            if (child instanceof ChartView) {
-                ((ChartView) child).onNightModeChanged(nightModeOn);
-            }
-        }
+        chartListView.onNightModeChanged(nightModeOn);
 
         getWindow().setStatusBarColor(getResources().getColor(nightModeOn ? R.color.darkThemeStatusbar : R.color.lightThemeStatusbar));
         getActionBar().setBackgroundDrawable(getResources().getDrawable(nightModeOn ? R.color.darkThemeToolbar : R.color.lightThemeToolbar));
@@ -0,0 +1,268 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams points produced on the device into a LiveChart. Lines of the stream are decoded on
+ * a background thread into a few preallocated batches, which are appended on the main thread.
+ * When the main thread falls behind, all the batches are waiting to be appended and reading
+ * stops until one is free again, so the producer is slowed down instead of memory growing.
+ */
+public abstract class ChartDataSource {
+
+    private static final int BATCHES_COUNT = 4;
+    private static final int BATCH_CAPACITY = 512;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    public interface Callback {
+        void onSourceFinished();
+
+        void onSourceFailed(Exception ex);
+    }
+
+    private LiveChart chart;
+    private Callback callback;
+    private String threadName;
+
+    // reading thread only
+    private PointLineDecoder decoder;
+
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ExecutorService executor;
+    private Future<?> readingFuture;
+
+    private volatile boolean cancelled;
+
+    private BlockingQueue<PointsBatch> freeBatches = new ArrayBlockingQueue<>(BATCHES_COUNT);
+    private BlockingQueue<PointsBatch> filledBatches = new ArrayBlockingQueue<>(BATCHES_COUNT);
+    private AtomicBoolean appendPosted = new AtomicBoolean();
+
+    private volatile long receivedPointsCount;
+    private volatile long malformedLinesCount;
+    private volatile long outOfOrderLinesCount;
+    private volatile long backpressureWaitNanos;
+
+    private Runnable appendRunnable = new Runnable() {
+        @Override
+        public void run() {
+            appendPosted.set(false);
+
+            PointsBatch batch;
+
+            while ((batch = filledBatches.poll()) != null) {
+                if (!cancelled) {
+                    chart.append(batch.timestamps, batch.values, batch.count);
+                }
+
+                batch.clear();
+                freeBatches.offer(batch);
+            }
+        }
+    };
+
+    protected ChartDataSource(LiveChart chart, Callback callback, String threadName) {
+        this.chart = chart;
+        this.callback = callback;
+        this.threadName = threadName;
+        this.decoder = new PointLineDecoder(chart.getLinesCount());
+
+        for (int i = 0; i < BATCHES_COUNT; i++) {
+            freeBatches.offer(new PointsBatch(chart.getLinesCount(), BATCH_CAPACITY));
+        }
+    }
+
+    public void start() {
+        if (executor != null) return;
+
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, threadName);
+            }
+        });
+
+        readingFuture = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                read();
+            }
+        });
+    }
+
+    public void cancel() {
+        cancelled = true;
+
+        if (readingFuture != null) {
+            readingFuture.cancel(true);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        // a read blocked in the stream is released by closing it
+        closeStream();
+
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    public long getReceivedPointsCount() {
+        return receivedPointsCount;
+    }
+
+    public long getMalformedLinesCount() {
+        return malformedLinesCount;
+    }
+
+    // lines dropped as their timestamps are lower than the latest one
+    public long getOutOfOrderLinesCount() {
+        return outOfOrderLinesCount;
+    }
+
+    // time the reading thread spent waiting for the main thread to append the batches
+    public long getBackpressureWaitNanos() {
+        return backpressureWaitNanos;
+    }
+
+    // called on the reading thread
+    protected abstract InputStream openStream() throws IOException;
+
+    // called on the reading thread when the stream has no more bytes, false if the source is over
+    protected abstract boolean awaitMoreData() throws IOException, InterruptedException;
+
+    // may be called from any thread
+    protected abstract void closeStream();
+
+    // called on the reading thread when the stream starts over, so a line cut by it is not joined to the next one
+    protected void discardPartialLine() {
+        decoder.discardLine();
+    }
+
+    private void read() {
+        try {
+            InputStream input = openStream();
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+            PointsBatch batch = takeFreeBatch();
+
+            while (true) {
+                // whatever is decoded goes to the chart before the thread may block
+                if (!batch.isEmpty() && input.available() == 0) {
+                    deliverBatch(batch);
+                    batch = takeFreeBatch();
+                }
+
+                int length = input.read(buffer);
+
+                if (length == -1) {
+                    if (!batch.isEmpty()) {
+                        deliverBatch(batch);
+                        batch = takeFreeBatch();
+                    }
+
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+
+                    if (awaitMoreData()) continue;
+
+                    break;
+                }
+
+                int offset = 0;
+
+                while (offset < length) {
+                    offset += decoder.decode(buffer, offset, length - offset, batch);
+
+                    if (batch.isFull()) {
+                        deliverBatch(batch);
+                        batch = takeFreeBatch();
+                    }
+                }
+            }
+
+            deliverFinished();
+        } catch (CancellationException | InterruptedException ex) {
+            // reading is not needed anymore
+        } catch (IOException | RuntimeException ex) {
+            if (!isCancelled()) {
+                deliverFailure(ex);
+            }
+        } finally {
+            closeStream();
+        }
+    }
+
+    private PointsBatch takeFreeBatch() throws InterruptedException {
+        PointsBatch batch = freeBatches.poll();
+
+        if (batch == null) {
+            // every batch is waiting for the main thread, stop reading until one is appended
+            long startNanos = System.nanoTime();
+            batch = freeBatches.take();
+            backpressureWaitNanos += System.nanoTime() - startNanos;
+        }
+
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+
+        return batch;
+    }
+
+    private void deliverBatch(PointsBatch batch) {
+        receivedPointsCount += batch.count;
+        malformedLinesCount = decoder.getMalformedLinesCount();
+        outOfOrderLinesCount = decoder.getOutOfOrderLinesCount();
+
+        filledBatches.offer(batch);
+
+        // one message appends everything filled since, however many batches are decoded meanwhile
+        if (appendPosted.compareAndSet(false, true)) {
+            mainHandler.post(appendRunnable);
+        }
+    }
+
+    protected boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    private void deliverFinished() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    callback.onSourceFinished();
+                }
+            }
+        });
+    }
+
+    private void deliverFailure(final Exception ex) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    callback.onSourceFailed(ex);
+                }
+            }
+        });
+    }
+
+}
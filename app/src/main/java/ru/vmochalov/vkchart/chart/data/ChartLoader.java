@@ -0,0 +1,254 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads and parses charts on a background thread and hands every chart to the main thread
+ * as soon as it is parsed, so the first chart does not wait for the rest of the input.
+ * Parsed charts are kept in a binary cache, which is used instead of json while the source is unchanged.
+ * Cold start timings are kept for the debug tools and shown in systrace as a ChartLoader#load slice.
+ */
+public class ChartLoader {
+
+    private static final String THREAD_NAME = "ChartLoader";
+    private static final String TAG = "ChartLoader";
+    private static final String TRACE_NAME = "ChartLoader#load";
+
+    public interface Callback {
+        void onChartLoaded(Chart chart);
+
+        void onLoadingFinished();
+
+        void onLoadingFailed(Exception ex);
+    }
+
+    private Resources resources;
+    private int rawResourceId;
+    private ChartCache chartCache;
+    private Callback callback;
+
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ExecutorService executor;
+    private Future<?> loadingFuture;
+
+    private volatile boolean cancelled;
+
+    // durations are measured from start() and are -1 until known
+    private long startTime;
+    // main thread only
+    private long firstChartMillis = -1;
+    private volatile long loadingMillis = -1;
+    private volatile boolean loadedFromCache;
+
+    public ChartLoader(Resources resources, int rawResourceId, File cacheDir, Callback callback) {
+        this.resources = resources;
+        this.rawResourceId = rawResourceId;
+        this.chartCache = new ChartCache(new File(cacheDir, "charts_" + rawResourceId + ".bin"));
+        this.callback = callback;
+    }
+
+    public void start() {
+        if (executor != null) return;
+
+        startTime = SystemClock.elapsedRealtime();
+
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, THREAD_NAME);
+            }
+        });
+
+        loadingFuture = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                load();
+            }
+        });
+    }
+
+    public void cancel() {
+        cancelled = true;
+
+        if (loadingFuture != null) {
+            loadingFuture.cancel(true);
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    // the time from start() until the first chart has been handed to the callback, -1 before that
+    public long getFirstChartMillis() {
+        return firstChartMillis;
+    }
+
+    // the time from start() until every chart has been read, -1 before that; the cache is written after it
+    public long getLoadingMillis() {
+        return loadingMillis;
+    }
+
+    public boolean isLoadedFromCache() {
+        return loadedFromCache;
+    }
+
+    private void load() {
+        Trace.beginSection(TRACE_NAME);
+
+        try {
+            long sourceHash = getSourceHash();
+
+            if (loadFromCache(sourceHash)) {
+                loadedFromCache = true;
+                loadingMillis = SystemClock.elapsedRealtime() - startTime;
+            } else {
+                List<Chart> charts = loadFromJson();
+                loadingMillis = SystemClock.elapsedRealtime() - startTime;
+
+                writeCache(sourceHash, charts);
+            }
+
+            deliverFinished();
+        } catch (CancellationException ex) {
+            // loading is not needed anymore
+        } catch (IOException | JSONException | RuntimeException ex) {
+            deliverFailure(ex);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private long getSourceHash() throws IOException {
+        InputStream chartsInput = resources.openRawResource(rawResourceId);
+
+        try {
+            return ChartCache.computeHash(chartsInput);
+        } finally {
+            chartsInput.close();
+        }
+    }
+
+    private boolean loadFromCache(long sourceHash) {
+        List<Chart> charts;
+
+        try {
+            charts = chartCache.read(sourceHash);
+        } catch (IOException ex) {
+            Log.e(TAG, "Error while reading chart cache: " + ex.getMessage());
+            chartCache.delete();
+
+            return false;
+        }
+
+        if (charts == null) return false;
+
+        for (Chart chart : charts) {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+
+            deliverChart(chart);
+        }
+
+        return true;
+    }
+
+    private List<Chart> loadFromJson() throws IOException, JSONException {
+        final List<Chart> charts = new ArrayList<>();
+
+        InputStream chartsInput = resources.openRawResource(rawResourceId);
+
+        try {
+            ChartParser.fromJson(chartsInput, new ChartParser.OnChartParsedListener() {
+                @Override
+                public void onChartParsed(Chart chart) {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+
+                    charts.add(chart);
+                    deliverChart(chart);
+                }
+            });
+        } finally {
+            chartsInput.close();
+        }
+
+        return charts;
+    }
+
+    private void writeCache(long sourceHash, List<Chart> charts) {
+        try {
+            chartCache.write(sourceHash, charts);
+        } catch (IOException ex) {
+            Log.e(TAG, "Error while writing chart cache: " + ex.getMessage());
+        }
+    }
+
+    private boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    private void deliverChart(final Chart chart) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    callback.onChartLoaded(chart);
+
+                    if (firstChartMillis == -1) {
+                        firstChartMillis = SystemClock.elapsedRealtime() - startTime;
+                    }
+                }
+            }
+        });
+    }
+
+    private void deliverFinished() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    callback.onLoadingFinished();
+                }
+            }
+        });
+    }
+
+    private void deliverFailure(final Exception ex) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled) {
+                    callback.onLoadingFailed(ex);
+                }
+            }
+        });
+    }
+
+}
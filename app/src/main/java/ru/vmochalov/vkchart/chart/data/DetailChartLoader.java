@@ -0,0 +1,268 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the detail chart of a single day of an overview chart on a background thread. Detail charts
+ * are stored apart from the overview, one file per day: directory/yyyy-MM/dd.json, like the second
+ * round contest data. Decoded charts are kept in an LruCache bounded by their size in memory, and
+ * the days next to the requested one are prefetched, so going back and forth between neighbouring
+ * days finds them decoded already. Expected to be used on the main thread only.
+ */
+public class DetailChartLoader {
+
+    private static final String THREAD_NAME = "DetailChartLoader";
+    private static final String TAG = "DetailChartLoader";
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    // days loaded before and after the requested one
+    private static final int PREFETCH_DAYS_COUNT = 1;
+
+    public interface Source {
+        InputStream open(String path) throws IOException;
+    }
+
+    public interface Callback {
+        void onDetailChartLoaded(long dayTimestamp, Chart detailChart);
+
+        void onDetailChartFailed(long dayTimestamp, Exception ex);
+    }
+
+    private Source source;
+
+    // paths of the days are the keys, charts are weighed by their approximate size in bytes
+    private LruCache<String, Chart> cache;
+
+    // directory of the detail files of every overview chart which has them
+    private Map<Chart, String> directories = new HashMap<>();
+    // paths being loaded, so a day is never loaded twice at the same time
+    private Set<String> loadingPaths = new HashSet<>();
+
+    // requests waiting for their charts by path, at most one per callback; prefetched days are only cached
+    private Map<String, List<Request>> requests = new HashMap<>();
+
+    private SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM/dd", Locale.US);
+
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, THREAD_NAME);
+        }
+    });
+
+    public DetailChartLoader(Source source, int maxCacheSizeBytes) {
+        this.source = source;
+
+        // the days of the contest data are in UTC
+        dayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        cache = new LruCache<String, Chart>(maxCacheSizeBytes) {
+            @Override
+            protected int sizeOf(String path, Chart chart) {
+                return chart.getApproximateSize();
+            }
+        };
+    }
+
+    // the start of the UTC day of the timestamp
+    public static long getDayTimestamp(long timestamp) {
+        return timestamp - ((timestamp % DAY_MILLIS) + DAY_MILLIS) % DAY_MILLIS;
+    }
+
+    public static long getDayDuration() {
+        return DAY_MILLIS;
+    }
+
+    public void setDirectory(Chart overviewChart, String directory) {
+        directories.put(overviewChart, directory);
+    }
+
+    public boolean hasDetails(Chart overviewChart) {
+        return directories.containsKey(overviewChart);
+    }
+
+    // a cached chart is delivered right away, otherwise with a later main thread message;
+    // a new request replaces the previous one of the same callback
+    public void load(Chart overviewChart, long dayTimestamp, Callback callback) {
+        cancel(callback);
+
+        String directory = directories.get(overviewChart);
+
+        if (directory == null) {
+            callback.onDetailChartFailed(dayTimestamp, new IllegalArgumentException("No details for the chart"));
+            return;
+        }
+
+        String path = getPath(directory, dayTimestamp);
+        Chart detailChart = cache.get(path);
+
+        if (detailChart != null) {
+            callback.onDetailChartLoaded(dayTimestamp, detailChart);
+        } else {
+            List<Request> pathRequests = requests.get(path);
+
+            if (pathRequests == null) {
+                pathRequests = new ArrayList<>();
+                requests.put(path, pathRequests);
+            }
+            pathRequests.add(new Request(dayTimestamp, callback));
+
+            submit(path);
+        }
+
+        for (int i = 1; i <= PREFETCH_DAYS_COUNT; i++) {
+            prefetch(getPath(directory, dayTimestamp - i * DAY_MILLIS));
+            prefetch(getPath(directory, dayTimestamp + i * DAY_MILLIS));
+        }
+    }
+
+    // the callback is not called anymore, the chart is still cached when loaded
+    public void cancel(Callback callback) {
+        Iterator<List<Request>> iterator = requests.values().iterator();
+
+        while (iterator.hasNext()) {
+            List<Request> pathRequests = iterator.next();
+
+            for (int i = 0; i < pathRequests.size(); i++) {
+                if (pathRequests.get(i).callback == callback) {
+                    pathRequests.remove(i);
+
+                    if (pathRequests.isEmpty()) {
+                        iterator.remove();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    // neither loads nor delivers anything after that
+    public void release() {
+        requests.clear();
+
+        executor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        cache.evictAll();
+    }
+
+    private String getPath(String directory, long dayTimestamp) {
+        return directory + "/" + dayFormat.format(new Date(dayTimestamp)) + ".json";
+    }
+
+    // the snapshot does not touch the order of the cache, so prefetching never keeps a day from being evicted
+    private void prefetch(String path) {
+        if (!cache.snapshot().containsKey(path)) {
+            submit(path);
+        }
+    }
+
+    private void submit(final String path) {
+        if (executor.isShutdown() || !loadingPaths.add(path)) return;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                try {
+                    final Chart chart = decode(path);
+
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadingPaths.remove(path);
+                            cache.put(path, chart);
+
+                            deliverLoaded(path, chart);
+                        }
+                    });
+                } catch (final IOException | JSONException | RuntimeException ex) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadingPaths.remove(path);
+
+                            deliverFailure(path, ex);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private Chart decode(String path) throws IOException, JSONException {
+        InputStream input = source.open(path);
+
+        try {
+            List<Chart> charts = ChartParser.fromJson(input);
+
+            if (charts.isEmpty()) {
+                throw new IOException("No chart in " + path);
+            }
+
+            return charts.get(0);
+        } finally {
+            input.close();
+        }
+    }
+
+    private void deliverLoaded(String path, Chart chart) {
+        List<Request> pathRequests = requests.remove(path);
+
+        if (pathRequests == null) return;
+
+        for (Request request : pathRequests) {
+            request.callback.onDetailChartLoaded(request.dayTimestamp, chart);
+        }
+    }
+
+    private void deliverFailure(String path, Exception ex) {
+        List<Request> pathRequests = requests.remove(path);
+
+        if (pathRequests == null) {
+            // a neighbouring day may well not exist
+            Log.d(TAG, "Unable to prefetch " + path + ": " + ex.getMessage());
+            return;
+        }
+
+        for (Request request : pathRequests) {
+            request.callback.onDetailChartFailed(request.dayTimestamp, ex);
+        }
+    }
+
+    private static class Request {
+        long dayTimestamp;
+        Callback callback;
+
+        Request(long dayTimestamp, Callback callback) {
+            this.dayTimestamp = dayTimestamp;
+            this.callback = callback;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Follows a file another process appends points to, like tail -f. The file is polled at its end;
+ * when it is truncated, for instance rotated by the producer, reading starts over from its beginning.
+ */
+public class FileTailDataSource extends ChartDataSource {
+
+    private static final String THREAD_NAME = "FileTailDataSource";
+    private static final long POLL_INTERVAL_MILLIS = 20;
+
+    private File file;
+    private boolean fromBeginning;
+
+    private volatile FileInputStream input;
+
+    // fromBeginning false skips the points written before the source is started
+    public FileTailDataSource(LiveChart chart, File file, boolean fromBeginning, Callback callback) {
+        super(chart, callback, THREAD_NAME);
+
+        this.file = file;
+        this.fromBeginning = fromBeginning;
+    }
+
+    @Override
+    protected InputStream openStream() throws IOException {
+        input = new FileInputStream(file);
+
+        if (!fromBeginning) {
+            FileChannel channel = input.getChannel();
+            channel.position(channel.size());
+        }
+
+        return input;
+    }
+
+    @Override
+    protected boolean awaitMoreData() throws IOException, InterruptedException {
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+
+        FileChannel channel = input.getChannel();
+
+        if (channel.size() < channel.position()) {
+            channel.position(0);
+            discardPartialLine();
+        }
+
+        return true;
+    }
+
+    @Override
+    protected void closeStream() {
+        FileInputStream input = this.input;
+
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException ex) {
+                // nothing to do, the source is stopped anyway
+            }
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads points from a local (unix domain) socket served by another process of the device,
+ * in the abstract namespace. The source is finished when the producer closes the connection.
+ * A slow main thread stops reading, so the producer blocks on a full socket buffer.
+ */
+public class LocalSocketDataSource extends ChartDataSource {
+
+    private static final String THREAD_NAME = "LocalSocketDataSource";
+
+    private String socketName;
+
+    private volatile LocalSocket socket;
+
+    public LocalSocketDataSource(LiveChart chart, String socketName, Callback callback) {
+        super(chart, callback, THREAD_NAME);
+
+        this.socketName = socketName;
+    }
+
+    @Override
+    protected InputStream openStream() throws IOException {
+        socket = new LocalSocket();
+        socket.connect(new LocalSocketAddress(socketName));
+
+        return socket.getInputStream();
+    }
+
+    @Override
+    protected boolean awaitMoreData() {
+        return false;
+    }
+
+    @Override
+    protected void closeStream() {
+        LocalSocket socket = this.socket;
+
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // nothing to do, the source is stopped anyway
+            }
+        }
+    }
+
+}
@@ -0,0 +1,383 @@
+package ru.vmochalov.vkchart.chart.view;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.widget.ScrollView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ru.vmochalov.vkchart.R;
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.data.DetailChartLoader;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+import ru.vmochalov.vkchart.chart.view.common.GestureDirectionListener;
+
+/**
+ * Vertical list of charts placed into a ScrollView. Only the charts within the viewport and a small
+ * prefetch window around it have a ChartView attached; views scrolled away are detached and
+ * rebound to other charts, every chart keeping its range and line visibility in a ChartViewState.
+ * Views in the prefetch window but off the screen release their cached layers until they are scrolled in.
+ */
+public class ChartListView extends ViewGroup {
+
+    // charts bound above and below the viewport, so a slow scroll never shows an unbound item
+    private static final int PREFETCH_ITEMS_COUNT = 1;
+
+    private List<Chart> charts = new ArrayList<>();
+    private List<ChartViewState> states = new ArrayList<>();
+
+    // height of every item, estimated until the item is bound for the first time
+    private int[] itemHeights = new int[16];
+    private boolean[] itemsMeasured = new boolean[16];
+    // itemOffsets[i] is the top of item i, itemOffsets[size] is the height of the list
+    private int[] itemOffsets = new int[17];
+    private int estimatedItemHeight;
+
+    private SparseArray<ChartView> boundViews = new SparseArray<>();
+    private List<ChartView> recycledViews = new ArrayList<>();
+
+    private int firstBoundPosition;
+    private int lastBoundPosition = -1;
+    // items intersecting the viewport, without the prefetch window
+    private int firstVisiblePosition;
+    private int lastVisiblePosition = -1;
+
+    private ScrollView scrollView;
+
+    private boolean nightModeOn;
+    private GestureDirectionListener gestureDirectionListener;
+    private ChartMetrics metrics;
+    private boolean renderThreadEnabled;
+    private DetailChartLoader detailChartLoader;
+
+    private ViewTreeObserver.OnScrollChangedListener onScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            updateBoundItems();
+        }
+    };
+
+    public ChartListView(Context context) {
+        super(context);
+
+        init();
+    }
+
+    public ChartListView(Context context, AttributeSet attributeSet) {
+        super(context, attributeSet);
+
+        init();
+    }
+
+    private void init() {
+        estimatedItemHeight = getResources().getDimensionPixelSize(R.dimen.chartPlaceholderHeight);
+    }
+
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        scrollView = findScrollView();
+        getViewTreeObserver().addOnScrollChangedListener(onScrollChangedListener);
+    }
+
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        getViewTreeObserver().removeOnScrollChangedListener(onScrollChangedListener);
+        scrollView = null;
+    }
+
+    private ScrollView findScrollView() {
+        ViewParent parent = getParent();
+
+        while (parent != null && !(parent instanceof ScrollView)) {
+            parent = parent.getParent();
+        }
+
+        return (ScrollView) parent;
+    }
+
+    public void addChart(Chart chart) {
+        addChart(chart, new ChartViewState(chart.getLinesCount()));
+    }
+
+    // the state is applied when the chart gets a view, e.g. a range touching the right edge follows a live chart
+    public void addChart(Chart chart, ChartViewState state) {
+        int position = charts.size();
+
+        charts.add(chart);
+        states.add(state);
+
+        if (itemHeights.length == position) {
+            itemHeights = Arrays.copyOf(itemHeights, position * 2);
+            itemsMeasured = Arrays.copyOf(itemsMeasured, position * 2);
+            itemOffsets = Arrays.copyOf(itemOffsets, position * 2 + 1);
+        }
+
+        itemHeights[position] = estimatedItemHeight;
+        itemOffsets[position + 1] = itemOffsets[position] + estimatedItemHeight;
+
+        requestLayout();
+    }
+
+    public int getChartsCount() {
+        return charts.size();
+    }
+
+    // number of ChartViews created so far, stays small however many charts the list holds
+    public int getCreatedViewsCount() {
+        return boundViews.size() + recycledViews.size();
+    }
+
+    public void setGestureDirectionListener(GestureDirectionListener listener) {
+        gestureDirectionListener = listener;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            boundViews.valueAt(i).setGestureDirectionListener(listener);
+        }
+        for (ChartView chartView : recycledViews) {
+            chartView.setGestureDirectionListener(listener);
+        }
+    }
+
+    // null stops measuring
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = metrics;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            boundViews.valueAt(i).setMetrics(metrics);
+        }
+        for (ChartView chartView : recycledViews) {
+            chartView.setMetrics(metrics);
+        }
+    }
+
+    // takes effect with the next binding of every chart
+    public void setDetailChartLoader(DetailChartLoader detailChartLoader) {
+        this.detailChartLoader = detailChartLoader;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            boundViews.valueAt(i).setDetailChartLoader(detailChartLoader);
+        }
+        for (ChartView chartView : recycledViews) {
+            chartView.setDetailChartLoader(detailChartLoader);
+        }
+    }
+
+    // the bound charts are bound again to be drawn the other way, their states are kept
+    public void setRenderThreadEnabled(boolean renderThreadEnabled) {
+        this.renderThreadEnabled = renderThreadEnabled;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            int position = boundViews.keyAt(i);
+            ChartView chartView = boundViews.valueAt(i);
+
+            chartView.setRenderThreadEnabled(renderThreadEnabled);
+            chartView.setChart(charts.get(position), states.get(position));
+        }
+        for (ChartView chartView : recycledViews) {
+            chartView.setRenderThreadEnabled(renderThreadEnabled);
+        }
+    }
+
+    public void onNightModeChanged(boolean nightModeOn) {
+        this.nightModeOn = nightModeOn;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            boundViews.valueAt(i).onNightModeChanged(nightModeOn);
+        }
+        for (ChartView chartView : recycledViews) {
+            chartView.onNightModeChanged(nightModeOn);
+        }
+    }
+
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            measureItem(boundViews.keyAt(i), boundViews.valueAt(i), width);
+        }
+
+        setMeasuredDimension(width, itemOffsets[charts.size()]);
+    }
+
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        updateBoundItems();
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            layoutItem(boundViews.keyAt(i), boundViews.valueAt(i));
+        }
+    }
+
+    // binds the items intersecting the viewport plus the prefetch window, recycles the rest
+    private void updateBoundItems() {
+        if (scrollView == null || charts.isEmpty() || getWidth() == 0) return;
+
+        int viewportTop = scrollView.getScrollY() - getTopInScrollView();
+        int viewportBottom = viewportTop + scrollView.getHeight();
+
+        int firstVisible = getPositionAt(viewportTop);
+        int lastVisible = getPositionAt(viewportBottom);
+
+        int first = Math.max(firstVisible - PREFETCH_ITEMS_COUNT, 0);
+        int last = Math.min(lastVisible + PREFETCH_ITEMS_COUNT, charts.size() - 1);
+
+        if (first == firstBoundPosition && last == lastBoundPosition) {
+            updateVisibleItems(firstVisible, lastVisible);
+            return;
+        }
+
+        for (int i = boundViews.size() - 1; i >= 0; i--) {
+            int position = boundViews.keyAt(i);
+
+            if (position < first || position > last) {
+                ChartView chartView = boundViews.valueAt(i);
+
+                boundViews.remove(position);
+                removeViewInLayout(chartView);
+                recycledViews.add(chartView);
+            }
+        }
+
+        firstBoundPosition = first;
+        lastBoundPosition = last;
+
+        int heightsDelta = 0;
+        int deltaAboveViewport = 0;
+
+        for (int position = first; position <= last; position++) {
+            if (boundViews.get(position) != null) continue;
+
+            ChartView chartView = obtainChartView();
+            chartView.setChart(charts.get(position), states.get(position));
+
+            boundViews.put(position, chartView);
+            addViewInLayout(chartView, -1, generateDefaultLayoutParams(), true);
+
+            int delta = measureItem(position, chartView, getWidth());
+            heightsDelta += delta;
+
+            if (itemOffsets[position] < viewportTop) {
+                deltaAboveViewport += delta;
+            }
+
+            layoutItem(position, chartView);
+        }
+
+        updateVisibleItems(firstVisible, lastVisible);
+
+        if (heightsDelta != 0) {
+            // estimated heights were wrong, keep the content under the viewport where it was
+            if (deltaAboveViewport != 0) {
+                scrollView.scrollBy(0, deltaAboveViewport);
+            }
+
+            requestLayout();
+        }
+
+        invalidate();
+    }
+
+    // a bound view leaving the viewport releases its layers, it is bound for a quick scroll back rather than drawn
+    private void updateVisibleItems(int firstVisible, int lastVisible) {
+        if (firstVisible == firstVisiblePosition && lastVisible == lastVisiblePosition) return;
+
+        for (int i = 0; i < boundViews.size(); i++) {
+            int position = boundViews.keyAt(i);
+            boolean wasVisible = position >= firstVisiblePosition && position <= lastVisiblePosition;
+
+            if (wasVisible && (position < firstVisible || position > lastVisible)) {
+                boundViews.valueAt(i).releaseLayers();
+            }
+        }
+
+        firstVisiblePosition = firstVisible;
+        lastVisiblePosition = lastVisible;
+    }
+
+    private ChartView obtainChartView() {
+        if (!recycledViews.isEmpty()) {
+            return recycledViews.remove(recycledViews.size() - 1);
+        }
+
+        ChartView chartView = new ChartView(getContext());
+        chartView.setGestureDirectionListener(gestureDirectionListener);
+        chartView.onNightModeChanged(nightModeOn);
+        chartView.setMetrics(metrics);
+        chartView.setRenderThreadEnabled(renderThreadEnabled);
+        chartView.setDetailChartLoader(detailChartLoader);
+
+        return chartView;
+    }
+
+    // returns the change of the item height
+    private int measureItem(int position, ChartView chartView, int width) {
+        chartView.measure(
+                MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED)
+        );
+
+        int height = chartView.getMeasuredHeight();
+        int delta = height - itemHeights[position];
+
+        if (!itemsMeasured[position]) {
+            itemsMeasured[position] = true;
+            // the latest measured item is the best guess for the charts not seen yet
+            estimatedItemHeight = height;
+        }
+
+        if (delta != 0) {
+            itemHeights[position] = height;
+
+            for (int i = position + 1; i <= charts.size(); i++) {
+                itemOffsets[i] += delta;
+            }
+        }
+
+        return delta;
+    }
+
+    private void layoutItem(int position, ChartView chartView) {
+        chartView.layout(0, itemOffsets[position], getWidth(), itemOffsets[position] + itemHeights[position]);
+    }
+
+    // position of the item containing y, clamped to the list bounds
+    private int getPositionAt(int y) {
+        int low = 0;
+        int high = charts.size() - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (itemOffsets[middle] <= y) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private int getTopInScrollView() {
+        int top = 0;
+
+        for (View view = this; view != scrollView; view = (View) view.getParent()) {
+            top += view.getTop();
+        }
+
+        return top;
+    }
+
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+
+}
@@ -4,18 +4,31 @@ import android.content.Context;
 import android.content.res.ColorStateList;
 import android.graphics.Color;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import ru.vmochalov.vkchart.R;
 import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.data.DetailChartLoader;
+import ru.vmochalov.vkchart.chart.data.LiveChart;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
 import ru.vmochalov.vkchart.chart.view.common.GestureDirectionListener;
 import ru.vmochalov.vkchart.chart.view.common.OnChartClickedListener;
 import ru.vmochalov.vkchart.chart.view.common.OnRangeChangedListener;
+import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
+import ru.vmochalov.vkchart.chart.view.primary.PrimaryChart;
 import ru.vmochalov.vkchart.chart.view.primary.PrimaryChartView;
+import ru.vmochalov.vkchart.chart.view.primary.RenderThreadPrimaryChartView;
 import ru.vmochalov.vkchart.chart.view.secondary.SecondaryChartView;
 
 /**
@@ -23,16 +36,92 @@ import ru.vmochalov.vkchart.chart.view.secondary.SecondaryChartView;
  */
 public class ChartView extends LinearLayout {
 
-    private PrimaryChartView primaryChartView;
+    private static final double FOLLOW_LATEST_TOLERANCE = 0.001;
+    private static final double DEFAULT_FOLLOW_WIDTH = 0.25;
+
+    private static final String TAG = "ChartView";
+
+    private static final int ZOOM_NONE = 0;
+    private static final int ZOOM_IN = 1;
+    private static final int ZOOM_OUT = 2;
+    private static final int ZOOM_ANIMATION_DURATION = 400;
+
+    private PrimaryChart primaryChartView;
     private SecondaryChartView secondaryChartView;
-    private SelectedPointInfoView selectedPointInfoView;
+    private TextView zoomOutView;
+
+    // the chart drawn, which is the detail chart of a day while zoomed in
+    private Chart chart;
+    private ChartViewState state;
+
+    // the chart the view is bound to, its state keeps the zoom
+    private Chart overviewChart;
+    private ChartViewState overviewState;
+
+    // null unless the charts have detail charts of their days
+    private DetailChartLoader detailChartLoader;
+    // the detail chart is shown as soon as it is loaded, without the zoom, when the zoom is restored
+    private boolean restoringZoom;
+
+    // the zoom animates the visible range of the chart drawn, then the chart is replaced
+    private AnimationClock zoomAnimationClock;
+    private int zoomSlot;
+    private int zoomDirection = ZOOM_NONE;
+    private double zoomFromStart;
+    private double zoomFromEnd;
+    private double zoomToStart;
+    private double zoomToEnd;
+    // the range of the overview chart to zoom out to
+    private double overviewStartPercent;
+    private double overviewEndPercent;
+    // the detail chart shown when the zoom in ends
+    private Chart zoomedDetailChart;
+
+    // the time between the first and the last point as of the latest append, the range is a fraction of it
+    private long firstTimestamp;
+    private long lastTimestamp;
+
+    // set while the view is being bound to a chart, restored state is applied without animations
+    private boolean binding;
+
+    private boolean nightModeOn;
+
+    // static charts are drawn on a render thread of their own when set
+    private boolean renderThreadEnabled;
+
+    // null unless the frame metrics are on
+    private ChartMetrics metrics;
+
+    // one per line of the chart, reused when the view is bound to another chart
+    private List<CheckBox> checkBoxes = new ArrayList<>();
 
     private GestureDirectionListener gestureDirectionListener;
 
+    // a live chart is listened to only while the view is attached
+    private LiveChart.OnPointsAppendedListener onPointsAppendedListener = new LiveChart.OnPointsAppendedListener() {
+        @Override
+        public void onPointsAppended(int appendedCount, int droppedCount) {
+            if (!isFollowingLatest()) {
+                keepRangeOnPoints();
+            }
+
+            updateTimestamps();
+
+            primaryChartView.onPointsAppended(appendedCount);
+            secondaryChartView.onPointsAppended();
+        }
+    };
+
     private OnRangeChangedListener onRangeChangedListener = new OnRangeChangedListener() {
         @Override
         public void onVisibleRangeChanged(double periodStart, double periodEnd) {
-            primaryChartView.onVisibleRangeChanged(periodStart, periodEnd);
+            state.setRange(periodStart, periodEnd);
+
+            if (binding) {
+                primaryChartView.setVisibleRange(periodStart, periodEnd);
+            } else {
+                primaryChartView.onVisibleRangeChanged(periodStart, periodEnd);
+            }
         }
 
         @Override
@@ -44,34 +133,52 @@ public class ChartView extends LinearLayout {
     };
 
     private OnChartClickedListener onChartClickedListener = new OnChartClickedListener() {
-
         @Override
-        public void onTouch(float x, int pointIndex, boolean areLinesVisible) {
-            selectedPointInfoView.onSelectedPointChanged(pointIndex);
-
-            if (areLinesVisible) {
-                selectedPointInfoView.onTouch(x, primaryChartView.getWidth());
-                selectedPointInfoView.setVisibility(View.VISIBLE);
+        public void onGestureDirectionChanged(boolean isHorizontal) {
+            if (gestureDirectionListener != null) {
+                gestureDirectionListener.onGestureDirectionChanged(isHorizontal);
             }
         }
 
         @Override
-        public void onButtonUp() {
-            selectedPointInfoView.setVisibility(View.GONE);
+        public void onPointClicked(int pointIndex) {
+            loadDetailChart(pointIndex);
         }
+    };
 
+    private DetailChartLoader.Callback detailChartCallback = new DetailChartLoader.Callback() {
         @Override
-        public void onGestureDirectionChanged(boolean isHorizontal) {
-            if (gestureDirectionListener != null) {
-                gestureDirectionListener.onGestureDirectionChanged(isHorizontal);
+        public void onDetailChartLoaded(long dayTimestamp, Chart detailChart) {
+            if (restoringZoom) {
+                restoringZoom = false;
+                showDetailChart(detailChart);
+            } else {
+                zoomIn(dayTimestamp, detailChart);
             }
+        }
 
-            if (!isHorizontal) {
-                selectedPointInfoView.setVisibility(View.GONE);
+        @Override
+        public void onDetailChartFailed(long dayTimestamp, Exception ex) {
+            Log.e(TAG, "Unable to load the detail chart: " + ex.getMessage());
+
+            if (restoringZoom) {
+                restoringZoom = false;
+                overviewState.zoomOut();
             }
         }
     };
 
+    private CompoundButton.OnCheckedChangeListener onLineCheckedListener = new CompoundButton.OnCheckedChangeListener() {
+        @Override
+        public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+            String lineId = buttonView.getTag().toString();
+
+            state.setLineVisible(chart.getLineIds().indexOf(lineId), isChecked);
+
+            setLineVisibility(lineId, isChecked);
+        }
+    };
+
     public ChartView(Context context) {
         super(context);
 
@@ -98,52 +205,380 @@ public class ChartView extends LinearLayout {
     private void onViewInflated() {
         primaryChartView = findViewById(R.id.chart);
         secondaryChartView = findViewById(R.id.chartNavigation);
-        selectedPointInfoView = findViewById(R.id.selectedPointInfoView);
+        zoomOutView = findViewById(R.id.zoomOut);
 
         secondaryChartView.setOnRangeChangedListener(onRangeChangedListener);
+        primaryChartView.setOnChartClickedListener(onChartClickedListener);
+
+        zoomOutView.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                zoomOut();
+            }
+        });
+
+        zoomAnimationClock = new AnimationClock(new RedrawCallback() {
+            @Override
+            public void onRedrawRequired() {
+                applyZoomFrame();
+            }
+        });
+        zoomSlot = zoomAnimationClock.obtainSlot(0, new AnimationClock.OnAnimationEndListener() {
+            @Override
+            public void onAnimationEnd(int slot) {
+                onZoomEnd();
+            }
+        });
     }
 
     public void setChart(Chart chart) {
+        setChart(chart, new ChartViewState(chart.getLinesCount()));
+    }
+
+    // binds the view to a chart, the state is restored and then kept up to date by the view
+    public void setChart(Chart chart, ChartViewState state) {
+        cancelZoom();
+
+        this.overviewChart = chart;
+        this.overviewState = state;
+
+        bindChart(chart, state);
+
+        // the detail chart is likely still cached, then it is shown right away
+        if (state.isZoomedIn() && detailChartLoader != null) {
+            restoringZoom = true;
+            detailChartLoader.load(chart, state.getDetailDayTimestamp(), detailChartCallback);
+        } else {
+            state.zoomOut();
+        }
+    }
+
+    private void bindChart(Chart chart, ChartViewState state) {
+        if (isAttachedToWindow()) {
+            stopListeningLiveChart();
+        }
+
+        this.chart = chart;
+        this.state = state;
+
+        updateTimestamps();
+
+        // points appended to a live chart are drawn on the main thread, where they are appended
+        updatePrimaryChartView(renderThreadEnabled && !(chart instanceof LiveChart));
+
+        binding = true;
+
         primaryChartView.setChart(chart);
         secondaryChartView.setChart(chart);
-        selectedPointInfoView.setChart(chart);
 
-        primaryChartView.setOnChartClickedListener(onChartClickedListener);
+        bindCheckBoxes();
+
+        for (int i = 0; i < chart.getLinesCount(); i++) {
+            if (!state.isLineVisible(i)) {
+                setLineVisibility(chart.getLineIds().get(i), false);
+            }
+        }
+
+        if (state.isRangeSet()) {
+            secondaryChartView.setVisibleRange(state.getStartPercent(), state.getEndPercent());
+        } else {
+            secondaryChartView.resetVisibleRange();
+        }
+
+        primaryChartView.finishAnimations();
+        secondaryChartView.finishAnimations();
+
+        binding = false;
 
-        for (int i = 0; i < chart.getLineIds().size(); i++) {
-            addView(createCheckBoxForLine(chart, i));
+        if (isAttachedToWindow()) {
+            startListeningLiveChart();
         }
     }
 
-    private CheckBox createCheckBoxForLine(Chart chart, final int lineIndex) {
-        String lineId = chart.getLineIds().get(lineIndex);
-        String lineLabel = chart.getLabels().get(lineIndex);
-        int color = chart.getColors().get(lineIndex);
+    // charts with details drill down into the day of a tapped point
+    public void setDetailChartLoader(DetailChartLoader detailChartLoader) {
+        this.detailChartLoader = detailChartLoader;
+    }
 
-        CheckBox checkBox = new CheckBox(getContext());
-        checkBox.setText(lineLabel);
-        checkBox.setTag(lineId);
-        checkBox.setButtonTintList(ColorStateList.valueOf(color));
-        checkBox.setChecked(true);
+    private void loadDetailChart(int pointIndex) {
+        if (detailChartLoader == null
+                || zoomDirection != ZOOM_NONE
+                || overviewState.isZoomedIn()
+                || !detailChartLoader.hasDetails(overviewChart)) {
+            return;
+        }
 
-        checkBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
-            @Override
-            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                String lineId = buttonView.getTag().toString();
+        long dayTimestamp = DetailChartLoader.getDayTimestamp(overviewChart.getTimestamp(pointIndex));
+
+        detailChartLoader.load(overviewChart, dayTimestamp, detailChartCallback);
+    }
 
-                primaryChartView.setLineVisibility(lineId, isChecked);
-                secondaryChartView.setLineVisibility(lineId, isChecked);
-                selectedPointInfoView.onLineVisiblityChanged(lineId, isChecked);
+    // the overview narrows to the day, then the detail chart takes its place showing the same day
+    private void zoomIn(long dayTimestamp, Chart detailChart) {
+        long dayEndTimestamp = dayTimestamp + DetailChartLoader.getDayDuration();
+
+        ChartViewState detailState = new ChartViewState(detailChart.getLinesCount());
+        detailState.setRange(getPercent(detailChart, dayTimestamp), getPercent(detailChart, dayEndTimestamp));
+
+        // the detail chart of the contest data has the lines of the overview
+        if (detailState.getLinesCount() == overviewState.getLinesCount()) {
+            for (int i = 0; i < detailState.getLinesCount(); i++) {
+                detailState.setLineVisible(i, overviewState.isLineVisible(i));
             }
-        });
+        }
+
+        boolean rangeSet = overviewState.isRangeSet();
+
+        overviewStartPercent = rangeSet ? overviewState.getStartPercent() : 0;
+        overviewEndPercent = rangeSet ? overviewState.getEndPercent() : 1;
+
+        overviewState.zoomIn(dayTimestamp, detailState);
+        zoomedDetailChart = detailChart;
+
+        startZoom(
+                ZOOM_IN,
+                overviewStartPercent,
+                overviewEndPercent,
+                getPercent(overviewChart, dayTimestamp),
+                getPercent(overviewChart, dayEndTimestamp)
+        );
+    }
+
+    // the overview takes the place of the detail chart showing the same time, then widens to its former range
+    private void zoomOut() {
+        if (zoomDirection != ZOOM_NONE || !overviewState.isZoomedIn()) return;
+
+        ChartViewState detailState = overviewState.getDetailState();
+
+        double fromStart = getPercent(overviewChart, chart.getTimestampAt(detailState.getStartPercent()));
+        double fromEnd = getPercent(overviewChart, chart.getTimestampAt(detailState.getEndPercent()));
+
+        overviewState.zoomOut();
+        zoomOutView.setVisibility(GONE);
+
+        bindChart(overviewChart, overviewState);
+
+        startZoom(ZOOM_OUT, fromStart, fromEnd, overviewState.getStartPercent(), overviewState.getEndPercent());
+    }
+
+    private void showDetailChart(Chart detailChart) {
+        bindChart(detailChart, overviewState.getDetailState());
+
+        zoomOutView.setVisibility(VISIBLE);
+    }
+
+    // fraction of the time between the first and the last point of the chart, clamped to it
+    private static double getPercent(Chart chart, long timestamp) {
+        int pointsCount = chart.getPointsCount();
+
+        if (pointsCount < 2) return 0;
+
+        long firstTimestamp = chart.getTimestamp(0);
+        long duration = Math.max(chart.getTimestamp(pointsCount - 1) - firstTimestamp, 1);
+
+        return Math.max(0, Math.min((double) (timestamp - firstTimestamp) / duration, 1));
+    }
+
+    private void startZoom(int direction, double fromStart, double fromEnd, double toStart, double toEnd) {
+        zoomDirection = direction;
+
+        zoomFromStart = fromStart;
+        zoomFromEnd = fromEnd;
+        // a day beyond the chart would be an empty range
+        zoomToStart = Math.min(toStart, toEnd);
+        zoomToEnd = toEnd > toStart ? toEnd : Math.min(toStart + (fromEnd - fromStart), 1);
+
+        secondaryChartView.setVisibleRange(fromStart, fromEnd);
+        zoomAnimationClock.animate(zoomSlot, 0, 1, ZOOM_ANIMATION_DURATION);
+    }
+
+    private void applyZoomFrame() {
+        if (zoomDirection == ZOOM_NONE || !zoomAnimationClock.isRunning(zoomSlot)) return;
+
+        double fraction = zoomAnimationClock.getValue(zoomSlot);
+
+        secondaryChartView.setVisibleRange(
+                zoomFromStart + (zoomToStart - zoomFromStart) * fraction,
+                zoomFromEnd + (zoomToEnd - zoomFromEnd) * fraction
+        );
+    }
+
+    private void onZoomEnd() {
+        int direction = zoomDirection;
+
+        zoomDirection = ZOOM_NONE;
+
+        if (direction == ZOOM_IN) {
+            // the overview is shown again with the range it was left with
+            overviewState.setRange(overviewStartPercent, overviewEndPercent);
+
+            Chart detailChart = zoomedDetailChart;
+            zoomedDetailChart = null;
+
+            showDetailChart(detailChart);
+        } else if (direction == ZOOM_OUT) {
+            secondaryChartView.setVisibleRange(zoomToStart, zoomToEnd);
+        }
+    }
+
+    // the view is bound to another chart, neither a running zoom nor a pending detail chart applies to it
+    private void cancelZoom() {
+        if (zoomDirection == ZOOM_IN) {
+            overviewState.setRange(overviewStartPercent, overviewEndPercent);
+        }
+
+        zoomDirection = ZOOM_NONE;
+        zoomedDetailChart = null;
+        zoomAnimationClock.setValue(zoomSlot, 0);
+
+        restoringZoom = false;
+
+        if (detailChartLoader != null) {
+            detailChartLoader.cancel(detailChartCallback);
+        }
+
+        zoomOutView.setVisibility(GONE);
+    }
+
+    // takes effect with the next setChart
+    public void setRenderThreadEnabled(boolean renderThreadEnabled) {
+        this.renderThreadEnabled = renderThreadEnabled;
+    }
+
+    private void updatePrimaryChartView(boolean renderThread) {
+        if (renderThread == primaryChartView instanceof RenderThreadPrimaryChartView) return;
+
+        View currentView = (View) primaryChartView;
+        ViewGroup parent = (ViewGroup) currentView.getParent();
+        int index = parent.indexOfChild(currentView);
+
+        View newView = renderThread
+                ? new RenderThreadPrimaryChartView(getContext())
+                : new PrimaryChartView(getContext());
+        newView.setId(R.id.chart);
+
+        parent.removeViewAt(index);
+        parent.addView(newView, index, currentView.getLayoutParams());
+
+        primaryChartView = (PrimaryChart) newView;
+        primaryChartView.setOnChartClickedListener(onChartClickedListener);
+        primaryChartView.onNightModeChanged(nightModeOn);
+        primaryChartView.setMetrics(metrics);
+    }
+
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        startListeningLiveChart();
+    }
+
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        stopListeningLiveChart();
+
+        // a running zoom is finished, so the view is recycled either on the overview or on the detail chart
+        zoomAnimationClock.stop();
+    }
+
+    private void startListeningLiveChart() {
+        if (chart instanceof LiveChart) {
+            ((LiveChart) chart).addOnPointsAppendedListener(onPointsAppendedListener);
+        }
+    }
+
+    private void stopListeningLiveChart() {
+        if (chart instanceof LiveChart) {
+            ((LiveChart) chart).removeOnPointsAppendedListener(onPointsAppendedListener);
+        }
+    }
+
+    // the frame touching the right edge follows the latest points of a live chart
+    public boolean isFollowingLatest() {
+        return state.isRangeSet() && state.getEndPercent() >= 1 - FOLLOW_LATEST_TOLERANCE;
+    }
+
+    // pins the frame to the right edge keeping its width, dragging it away stops following
+    public void followLatest() {
+        double width = state.isRangeSet() ? state.getEndPercent() - state.getStartPercent() : DEFAULT_FOLLOW_WIDTH;
+
+        secondaryChartView.setVisibleRange(1 - width, 1);
+    }
+
+    private void updateTimestamps() {
+        int pointsCount = chart.getPointsCount();
+
+        firstTimestamp = pointsCount == 0 ? 0 : chart.getTimestamp(0);
+        lastTimestamp = pointsCount == 0 ? 0 : chart.getTimestamp(pointsCount - 1);
+    }
+
+    // keeps the frame over the same time while the chart moves on
+    private void keepRangeOnPoints() {
+        int pointsCount = chart.getPointsCount();
+
+        if (!state.isRangeSet() || pointsCount < 2 || lastTimestamp <= firstTimestamp) return;
+
+        long previousDuration = lastTimestamp - firstTimestamp;
+        double startTimestamp = firstTimestamp + state.getStartPercent() * previousDuration;
+        double endTimestamp = firstTimestamp + state.getEndPercent() * previousDuration;
+
+        long newFirstTimestamp = chart.getTimestamp(0);
+        long duration = Math.max(chart.getTimestamp(pointsCount - 1) - newFirstTimestamp, 1);
+
+        double start = (startTimestamp - newFirstTimestamp) / duration;
+        double end = (endTimestamp - newFirstTimestamp) / duration;
+
+        if (start < 0) {
+            end -= start;
+            start = 0;
+        }
+
+        secondaryChartView.setVisibleRange(start, Math.min(end, 1));
+    }
+
+    private void bindCheckBoxes() {
+        int linesCount = chart.getLinesCount();
+
+        while (checkBoxes.size() > linesCount) {
+            removeView(checkBoxes.remove(checkBoxes.size() - 1));
+        }
+
+        while (checkBoxes.size() < linesCount) {
+            CheckBox checkBox = createCheckBox();
+            checkBoxes.add(checkBox);
+            addView(checkBox);
+        }
+
+        for (int i = 0; i < linesCount; i++) {
+            CheckBox checkBox = checkBoxes.get(i);
+
+            checkBox.setText(chart.getLabels().get(i));
+            checkBox.setTag(chart.getLineIds().get(i));
+            checkBox.setButtonTintList(ColorStateList.valueOf(chart.getColor(i)));
+
+            checkBox.setOnCheckedChangeListener(null);
+            checkBox.setChecked(state.isLineVisible(i));
+            checkBox.setOnCheckedChangeListener(onLineCheckedListener);
+        }
+    }
+
+    private CheckBox createCheckBox() {
+        CheckBox checkBox = new CheckBox(getContext());
+        checkBox.setTextColor(nightModeOn ? Color.WHITE : Color.BLACK);
 
         return checkBox;
     }
 
+    private void setLineVisibility(String lineId, boolean visible) {
+        primaryChartView.setLineVisibility(lineId, visible);
+        secondaryChartView.setLineVisibility(lineId, visible);
+    }
+
     public void onNightModeChanged(boolean nightModeOn) {
+        this.nightModeOn = nightModeOn;
+
         primaryChartView.onNightModeChanged(nightModeOn);
         secondaryChartView.onNightModeChanged(nightModeOn);
-        selectedPointInfoView.onNightModeChanged(nightModeOn);
 
         setBackgroundColor(
                 getResources().getColor(
@@ -151,11 +586,8 @@ public class ChartView extends LinearLayout {
                 )
         );
 
-        for (int i = 0; i < getChildCount(); i++) {
-            View view = getChildAt(i);
-            if (view instanceof CheckBox) {
-                ((CheckBox) view).setTextColor(nightModeOn ? Color.WHITE : Color.BLACK);
-            }
+        for (CheckBox checkBox : checkBoxes) {
+            checkBox.setTextColor(nightModeOn ? Color.WHITE : Color.BLACK);
         }
     }
 
@@ -163,4 +595,17 @@ public class ChartView extends LinearLayout {
         this.gestureDirectionListener = listener;
     }
 
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = metrics;
+
+        primaryChartView.setMetrics(metrics);
+        secondaryChartView.setMetrics(metrics);
+    }
+
+    // called while the view stays bound but is scrolled off the screen
+    public void releaseLayers() {
+        primaryChartView.releaseLayers();
+        secondaryChartView.releaseLayers();
+    }
+
 }
@@ -0,0 +1,80 @@
+package ru.vmochalov.vkchart.chart.view;
+
+import java.util.Arrays;
+
+/**
+ * What the user has changed on a chart: the visible range, the visibility of its lines and the day
+ * it is zoomed into. Kept per chart, so a recycled ChartView shows the chart exactly as it was left.
+ */
+public class ChartViewState {
+
+    // not set until the navigator reports its initial frame
+    private double startPercent = Double.NaN;
+    private double endPercent = Double.NaN;
+
+    private boolean[] linesVisibility;
+
+    // the day of the detail chart shown instead of the overview one, the state of the detail chart
+    private boolean zoomedIn;
+    private long detailDayTimestamp;
+    private ChartViewState detailState;
+
+    public ChartViewState(int linesCount) {
+        linesVisibility = new boolean[linesCount];
+
+        Arrays.fill(linesVisibility, true);
+    }
+
+    public boolean isRangeSet() {
+        return !Double.isNaN(startPercent);
+    }
+
+    public double getStartPercent() {
+        return startPercent;
+    }
+
+    public double getEndPercent() {
+        return endPercent;
+    }
+
+    public void setRange(double startPercent, double endPercent) {
+        this.startPercent = startPercent;
+        this.endPercent = endPercent;
+    }
+
+    public boolean isLineVisible(int lineIndex) {
+        return linesVisibility[lineIndex];
+    }
+
+    public void setLineVisible(int lineIndex, boolean visible) {
+        linesVisibility[lineIndex] = visible;
+    }
+
+    public int getLinesCount() {
+        return linesVisibility.length;
+    }
+
+    public boolean isZoomedIn() {
+        return zoomedIn;
+    }
+
+    public long getDetailDayTimestamp() {
+        return detailDayTimestamp;
+    }
+
+    public ChartViewState getDetailState() {
+        return detailState;
+    }
+
+    public void zoomIn(long detailDayTimestamp, ChartViewState detailState) {
+        this.zoomedIn = true;
+        this.detailDayTimestamp = detailDayTimestamp;
+        this.detailState = detailState;
+    }
+
+    public void zoomOut() {
+        zoomedIn = false;
+        detailState = null;
+    }
+
+}
@@ -0,0 +1,163 @@
+package ru.vmochalov.vkchart.chart.view.common;
+
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * Single animation driver of a chart view. Delegates obtain value slots once and animate them
+ * as often as needed; all running slots are advanced from one Choreographer callback and
+ * exactly one redraw is requested per frame, however many animations are running.
+ */
+public class AnimationClock implements Choreographer.FrameCallback {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    public interface OnAnimationEndListener {
+        void onAnimationEnd(int slot);
+    }
+
+    private RedrawCallback redrawCallback;
+
+    private int slotsCount;
+
+    private float[] values = new float[INITIAL_CAPACITY];
+    private float[] startValues = new float[INITIAL_CAPACITY];
+    private float[] endValues = new float[INITIAL_CAPACITY];
+    private long[] startTimesNanos = new long[INITIAL_CAPACITY];
+    private long[] durationsNanos = new long[INITIAL_CAPACITY];
+    private boolean[] running = new boolean[INITIAL_CAPACITY];
+    private OnAnimationEndListener[] endListeners = new OnAnimationEndListener[INITIAL_CAPACITY];
+
+    private boolean frameScheduled;
+
+    public AnimationClock(RedrawCallback redrawCallback) {
+        this.redrawCallback = redrawCallback;
+    }
+
+    public int obtainSlot(float initialValue) {
+        return obtainSlot(initialValue, null);
+    }
+
+    public int obtainSlot(float initialValue, OnAnimationEndListener endListener) {
+        if (slotsCount == values.length) {
+            int capacity = slotsCount * 2;
+
+            values = Arrays.copyOf(values, capacity);
+            startValues = Arrays.copyOf(startValues, capacity);
+            endValues = Arrays.copyOf(endValues, capacity);
+            startTimesNanos = Arrays.copyOf(startTimesNanos, capacity);
+            durationsNanos = Arrays.copyOf(durationsNanos, capacity);
+            running = Arrays.copyOf(running, capacity);
+            endListeners = Arrays.copyOf(endListeners, capacity);
+        }
+
+        int slot = slotsCount++;
+
+        values[slot] = initialValue;
+        endValues[slot] = initialValue;
+        endListeners[slot] = endListener;
+
+        return slot;
+    }
+
+    // animates from the current value, so an interrupted animation continues smoothly
+    public void animate(int slot, float to, long durationMillis) {
+        animate(slot, values[slot], to, durationMillis);
+    }
+
+    public void animate(int slot, float from, float to, long durationMillis) {
+        values[slot] = from;
+        startValues[slot] = from;
+        endValues[slot] = to;
+        startTimesNanos[slot] = System.nanoTime();
+        durationsNanos[slot] = durationMillis * 1000000L;
+        running[slot] = true;
+
+        scheduleFrame();
+    }
+
+    public void setValue(int slot, float value) {
+        values[slot] = value;
+        endValues[slot] = value;
+        running[slot] = false;
+    }
+
+    public float getValue(int slot) {
+        return values[slot];
+    }
+
+    public float getTargetValue(int slot) {
+        return endValues[slot];
+    }
+
+    public boolean isRunning(int slot) {
+        return running[slot];
+    }
+
+    // jumps every running slot to its end value
+    public void stop() {
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            frameScheduled = false;
+        }
+
+        for (int slot = 0; slot < slotsCount; slot++) {
+            if (running[slot]) {
+                values[slot] = endValues[slot];
+                running[slot] = false;
+
+                if (endListeners[slot] != null) {
+                    endListeners[slot].onAnimationEnd(slot);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+
+        boolean anyRunning = false;
+
+        for (int slot = 0; slot < slotsCount; slot++) {
+            if (!running[slot]) continue;
+
+            float fraction = durationsNanos[slot] == 0
+                    ? 1
+                    : (float) (frameTimeNanos - startTimesNanos[slot]) / durationsNanos[slot];
+
+            if (fraction >= 1) {
+                values[slot] = endValues[slot];
+                running[slot] = false;
+
+                if (endListeners[slot] != null) {
+                    endListeners[slot].onAnimationEnd(slot);
+                }
+            } else {
+                values[slot] = startValues[slot] + (endValues[slot] - startValues[slot]) * interpolate(Math.max(fraction, 0));
+            }
+
+            anyRunning |= running[slot];
+        }
+
+        redrawCallback.onRedrawRequired();
+
+        if (anyRunning) {
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            Choreographer.getInstance().postFrameCallback(this);
+            frameScheduled = true;
+        }
+    }
+
+    // same curve as the default ValueAnimator interpolator
+    private static float interpolate(float fraction) {
+        return (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+    }
+
+}
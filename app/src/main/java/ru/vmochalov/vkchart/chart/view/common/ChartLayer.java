@@ -0,0 +1,84 @@
+package ru.vmochalov.vkchart.chart.view.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * A part of a chart cached in a bitmap of its own, so it is not painted again while only the other
+ * parts change. A layer which has changed since the previous frame is likely to change with the next
+ * one as well, as it does during a drag or an animation, so it is painted straight onto the canvas
+ * then and cached with the first frame it stays the same.
+ */
+public class ChartLayer {
+
+    public interface Painter {
+        void paint(Canvas canvas);
+    }
+
+    private Painter painter;
+
+    private Bitmap bitmap;
+    private Canvas bitmapCanvas;
+
+    private boolean cacheValid;
+    private boolean changedSinceDraw = true;
+
+    private int paintsCount;
+
+    public ChartLayer(Painter painter) {
+        this.painter = painter;
+    }
+
+    // the inputs of the layer have changed
+    public void invalidate() {
+        cacheValid = false;
+        changedSinceDraw = true;
+    }
+
+    public void draw(Canvas canvas, int width, int height) {
+        if (width == 0 || height == 0) return;
+
+        if (changedSinceDraw) {
+            changedSinceDraw = false;
+            paintsCount++;
+            painter.paint(canvas);
+            return;
+        }
+
+        if (bitmap != null && (bitmap.getWidth() != width || bitmap.getHeight() != height)) {
+            release();
+        }
+
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmapCanvas = new Canvas(bitmap);
+            cacheValid = false;
+        }
+
+        if (!cacheValid) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            paintsCount++;
+            painter.paint(bitmapCanvas);
+            cacheValid = true;
+        }
+
+        canvas.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    // times the layer has been painted, it stays the same while the layer is drawn from the cache
+    public int getPaintsCount() {
+        return paintsCount;
+    }
+
+    public void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+            bitmapCanvas = null;
+        }
+
+        cacheValid = false;
+    }
+
+}
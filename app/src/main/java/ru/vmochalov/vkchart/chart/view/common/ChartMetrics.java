@@ -0,0 +1,256 @@
+package ru.vmochalov.vkchart.chart.view.common;
+
+import android.os.Debug;
+import android.os.Trace;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Opt-in frame metrics of the chart views: how long every draw delegate, the layout and the range
+ * updates take, how many objects they allocate and how many frames are missed while the charts draw.
+ * Every measured section is also a Trace section, so systrace and Perfetto captures show it as a named slice.
+ * Objects are counted by the runtime for the thread the section runs on, so a section which allocates
+ * anything at all shows up, whatever delegate or platform call it comes from. The counting is global
+ * to the process, so it runs while any ChartMetrics is not stopped.
+ * Views measure nothing until a ChartMetrics is set; one instance may be shared by several views,
+ * and sections may be measured on the render threads of the views as well as on the main thread.
+ */
+public class ChartMetrics {
+
+    public static final int SECTION_FRAME = 0;
+    public static final int SECTION_BACKGROUND = 1;
+    public static final int SECTION_VERTICAL_AXIS = 2;
+    public static final int SECTION_LINES = 3;
+    public static final int SECTION_SELECTED_POINTS = 4;
+    public static final int SECTION_VERTICAL_LABELS = 5;
+    public static final int SECTION_HORIZONTAL_LABELS = 6;
+    public static final int SECTION_NAVIGATOR = 7;
+    public static final int SECTION_LAYOUT = 8;
+    public static final int SECTION_RANGE_UPDATE = 9;
+    public static final int SECTION_SELECTED_POINT_INFO = 10;
+
+    private static final String[] SECTION_NAMES = {
+            "frame",
+            "background",
+            "verticalAxis",
+            "lines",
+            "selectedPoints",
+            "verticalLabels",
+            "horizontalLabels",
+            "navigator",
+            "layout",
+            "rangeUpdate",
+            "selectedPointInfo"
+    };
+
+    // constant strings, so tracing does not allocate
+    private static final String[] TRACE_NAMES = {
+            "ChartView#frame",
+            "ChartView#background",
+            "ChartView#verticalAxis",
+            "ChartView#lines",
+            "ChartView#selectedPoints",
+            "ChartView#verticalLabels",
+            "ChartView#horizontalLabels",
+            "ChartView#navigator",
+            "ChartView#layout",
+            "ChartView#rangeUpdate",
+            "ChartView#selectedPointInfo"
+    };
+
+    // a frame is missed when the next one comes this many intervals later, as in LiveChartBenchmark
+    private static final float MISSED_FRAME_THRESHOLD = 1.5f;
+
+    // instances not stopped yet, the first one starts the allocation counting and the last one stops it
+    private static int allocCountingOwnersCount;
+
+    private DurationHistogram[] histograms = new DurationHistogram[SECTION_NAMES.length];
+
+    // sections of different threads overlap, so every thread keeps its own starts
+    private ThreadLocal<SectionStarts> sectionStarts = new ThreadLocal<SectionStarts>() {
+        @Override
+        protected SectionStarts initialValue() {
+            return new SectionStarts();
+        }
+    };
+
+    // objects allocated within every section, the allocation free draw path keeps them at zero in steady state
+    private long[] allocatedObjectsCounts = new long[SECTION_NAMES.length];
+    private int[] maxAllocatedObjectsCounts = new int[SECTION_NAMES.length];
+
+    private DurationHistogram frameIntervals = new DurationHistogram();
+    private long frameIntervalNanos;
+    private long drawnFrameNanos;
+    private boolean frameCallbackPosted;
+    private long drawnFramesCount;
+    private long missedFramesCount;
+    private boolean stopped;
+
+    // the frame after a drawn one tells whether the draw made the display skip frames
+    private Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameCallbackPosted = false;
+
+            long interval = frameTimeNanos - drawnFrameNanos;
+
+            frameIntervals.record(interval);
+
+            if (interval > frameIntervalNanos * MISSED_FRAME_THRESHOLD) {
+                missedFramesCount += Math.round((float) interval / frameIntervalNanos) - 1;
+            }
+        }
+    };
+
+    public ChartMetrics(float refreshRate) {
+        this.frameIntervalNanos = (long) (1000000000L / refreshRate);
+
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new DurationHistogram();
+        }
+
+        startAllocCounting();
+    }
+
+    // the allocation counting of Debug is deprecated without a replacement counting objects per thread
+    @SuppressWarnings("deprecation")
+    public void beginSection(int section) {
+        SectionStarts starts = sectionStarts.get();
+
+        Trace.beginSection(TRACE_NAMES[section]);
+        starts.allocCounts[section] = Debug.getThreadAllocCount();
+        starts.nanos[section] = System.nanoTime();
+    }
+
+    @SuppressWarnings("deprecation")
+    public void endSection(int section) {
+        SectionStarts starts = sectionStarts.get();
+
+        long duration = System.nanoTime() - starts.nanos[section];
+        int allocatedObjectsCount = Debug.getThreadAllocCount() - starts.allocCounts[section];
+
+        synchronized (this) {
+            histograms[section].record(duration);
+
+            allocatedObjectsCounts[section] += allocatedObjectsCount;
+            maxAllocatedObjectsCounts[section] = Math.max(maxAllocatedObjectsCounts[section], allocatedObjectsCount);
+        }
+
+        Trace.endSection();
+    }
+
+    // drawingTimeMillis is View.getDrawingTime(), the time of the frame being drawn
+    public void onFrameDrawn(long drawingTimeMillis) {
+        drawnFramesCount++;
+
+        // several views drawn within a frame count once
+        if (frameCallbackPosted) return;
+
+        frameCallbackPosted = true;
+        drawnFrameNanos = drawingTimeMillis * 1000000L;
+
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    // not to be read while sections are measured on other threads
+    public DurationHistogram getHistogram(int section) {
+        return histograms[section];
+    }
+
+    // objects allocated within the section since the latest reset
+    public synchronized long getAllocatedObjectsCount(int section) {
+        return allocatedObjectsCounts[section];
+    }
+
+    // the most objects allocated within a single run of the section since the latest reset
+    public synchronized int getMaxAllocatedObjectsCount(int section) {
+        return maxAllocatedObjectsCounts[section];
+    }
+
+    public long getMissedFramesCount() {
+        return missedFramesCount;
+    }
+
+    public synchronized void reset() {
+        for (DurationHistogram histogram : histograms) {
+            histogram.reset();
+        }
+
+        Arrays.fill(allocatedObjectsCounts, 0);
+        Arrays.fill(maxAllocatedObjectsCounts, 0);
+
+        frameIntervals.reset();
+        drawnFramesCount = 0;
+        missedFramesCount = 0;
+    }
+
+    // allocations are not counted anymore after that, unless another instance still counts them
+    public void stop() {
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        frameCallbackPosted = false;
+
+        if (!stopped) {
+            stopped = true;
+            stopAllocCounting();
+        }
+    }
+
+    // a table of every section in microseconds, for the overlay and for automated runs
+    public synchronized String dump() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format(
+                Locale.US,
+                "%-16s %7s %6s %6s %6s %6s %7s %6s%n",
+                "us", "count", "p50", "p95", "p99", "max", "allocs", "max"
+        ));
+
+        for (int i = 0; i < histograms.length; i++) {
+            appendRow(builder, SECTION_NAMES[i], histograms[i]);
+            builder.append(String.format(Locale.US, " %7d %6d%n", allocatedObjectsCounts[i], maxAllocatedObjectsCounts[i]));
+        }
+
+        appendRow(builder, "frameInterval", frameIntervals);
+        builder.append(String.format(Locale.US, "%n"));
+
+        builder.append(String.format(Locale.US, "%d draws, %d frames missed", drawnFramesCount, missedFramesCount));
+
+        return builder.toString();
+    }
+
+    // costs the runtime some time on every allocation, which is why the metrics are opt-in
+    @SuppressWarnings("deprecation")
+    private static synchronized void startAllocCounting() {
+        if (allocCountingOwnersCount++ == 0) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static synchronized void stopAllocCounting() {
+        if (--allocCountingOwnersCount == 0) {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private void appendRow(StringBuilder builder, String name, DurationHistogram histogram) {
+        builder.append(String.format(
+                Locale.US,
+                "%-16s %7d %6d %6d %6d %6d",
+                name,
+                histogram.getCount(),
+                histogram.getPercentileMicros(50),
+                histogram.getPercentileMicros(95),
+                histogram.getPercentileMicros(99),
+                histogram.getMaxMicros()
+        ));
+    }
+
+    private static class SectionStarts {
+        long[] nanos = new long[SECTION_NAMES.length];
+        int[] allocCounts = new int[SECTION_NAMES.length];
+    }
+
+}
@@ -0,0 +1,77 @@
+package ru.vmochalov.vkchart.chart.view.common;
+
+/**
+ * Distribution of durations in microseconds over fixed buckets, so recording never allocates.
+ * Durations below 32 us are counted exactly; above that every power of two is split into
+ * 32 buckets, which keeps percentiles within 3% of the real value up to MAX_MICROS.
+ */
+public class DurationHistogram {
+
+    private static final int SUB_BUCKETS_BITS = 5;
+    private static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKETS_BITS;
+    private static final long MAX_MICROS = 10 * 1000 * 1000;
+
+    private long[] counts = new long[getBucketIndex(MAX_MICROS) + 1];
+    private long totalCount;
+    private long maxMicros;
+
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+
+        counts[getBucketIndex(micros)]++;
+        totalCount++;
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    // the upper bound of the bucket holding the given percentile, 0 when nothing is recorded
+    public long getPercentileMicros(double percentile) {
+        if (totalCount == 0) return 0;
+
+        long rank = Math.max((long) Math.ceil(totalCount * percentile / 100), 1);
+        long count = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+
+            if (count >= rank) {
+                return Math.min(getBucketStart(i + 1) - 1, maxMicros);
+            }
+        }
+
+        return maxMicros;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+
+        totalCount = 0;
+        maxMicros = 0;
+    }
+
+    private static int getBucketIndex(long micros) {
+        if (micros < SUB_BUCKETS_COUNT) return (int) micros;
+
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKETS_BITS;
+
+        return SUB_BUCKETS_COUNT * (shift + 1) + (int) ((micros >> shift) - SUB_BUCKETS_COUNT);
+    }
+
+    private static long getBucketStart(int index) {
+        if (index < SUB_BUCKETS_COUNT) return index;
+
+        int shift = index / SUB_BUCKETS_COUNT - 1;
+
+        return (long) (index % SUB_BUCKETS_COUNT + SUB_BUCKETS_COUNT) << shift;
+    }
+
+}
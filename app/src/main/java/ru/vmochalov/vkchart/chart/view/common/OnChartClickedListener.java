@@ -4,9 +4,8 @@ package ru.vmochalov.vkchart.chart.view.common;
  * Created by Vladimir Mochalov on 02.02.2020.
  */
 public interface OnChartClickedListener {
-    void onTouch(float x, int pointIndex, boolean areLinesVisible);
-
-    void onButtonUp();
-
     void onGestureDirectionChanged(boolean isHorizontal);
+
+    // a tap, neither a drag nor a scrub, on the point closest to it
+    void onPointClicked(int pointIndex);
 }
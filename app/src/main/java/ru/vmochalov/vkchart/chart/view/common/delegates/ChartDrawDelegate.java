@@ -1,17 +1,20 @@
 package ru.vmochalov.vkchart.chart.view.common.delegates;
 
-import android.animation.ValueAnimator;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
-import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
-
-import static ru.vmochalov.vkchart.utils.CalculationUtil.getMaxValue;
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.data.LiveChart;
+import ru.vmochalov.vkchart.chart.data.MinMaxPyramid;
+import ru.vmochalov.vkchart.chart.layout.LineGeometry;
+import ru.vmochalov.vkchart.chart.layout.LineProjection;
+import ru.vmochalov.vkchart.chart.layout.StackProjection;
+import ru.vmochalov.vkchart.chart.layout.TimeScale;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
 
 /**
  * Created by Vladimir Mochalov on 19.01.2020.
@@ -19,29 +22,74 @@ import static ru.vmochalov.vkchart.utils.CalculationUtil.getMaxValue;
 public class ChartDrawDelegate {
     private final int ALPHA_ANIMATION_DURATION = 300;
     private final int LINES_HEIGHT_ANIMATION_DURATION = 500;
-
-    public interface MaxVisibleValueListener {
-        void onMaxVisibleValueChanged(int previousMaxValue, int newMaxValue);
+    // buckets not wider than a pixel look exactly like the full resolution line
+    private final float MAX_BUCKET_WIDTH_PX = 1;
+
+    public interface VisibleValuesListener {
+        // scaleIndex is 0 for the scale shared by all the lines, or the index of the line of a y scaled chart
+        void onVisibleValuesChanged(
+                int scaleIndex,
+                boolean scaleVisible,
+                int previousMinValue,
+                int previousMaxValue,
+                int newMinValue,
+                int newMaxValue
+        );
     }
 
+    private Chart chart;
     private int linesCount;
 
+    // alphas as of the current frame, taken from the animation clock
     private int[] linesAlphas;
     private boolean[] lineVisibilities;
-
-    private List<Integer> colors;
-    private List<List<Integer>> chartOrdinates;
-
-    private float x0;
-    private int firstVisiblePointIndex;
-    private float xStep;
-    private float yStep;
-    private int lastVisiblePointIndex;
-    private float[] chartPoints;
+    private int[] lineAlphaSlots = new int[0];
+
+    // color of every line for every alpha, so no color is calculated while drawing
+    private int[][] alphaColors;
+    private int[][] chartOrdinates;
+    private MinMaxPyramid[] pyramids;
+
+    private LineProjection projection = new LineProjection();
+    // array index of the first point as of the latest drawing params
+    private int pointsOffset;
+
+    // visible array indexes as of the latest drawing params
+    private int firstVisibleIndex;
+    private int lastVisibleIndex;
+    private int detailLevel;
+    private float xScale;
+
+    // per line, built for a span around the visible points, the visible slice is mapped to the screen every frame
+    private LineGeometry[] geometries = new LineGeometry[0];
+    // appended points of a live chart as of the geometries, appends may overwrite the points they are built of
+    private long geometriesAppendedPointsCount;
+    // grow-only, reallocated only when more segments become visible than ever before
+    private float[] chartPoints = new float[0];
+
+    // bars and areas depend on every line and its animated scale, so they are projected every frame
+    private StackProjection stackProjection = new StackProjection();
+    private float[] lineScales = new float[0];
+    private Path areaPath = new Path();
+    // as wide as the visible points are apart on average, one bar per bucket of the detail level
+    private float barWidth;
 
     private float height;
 
-    private int maxVisibleValue;
+    // a single scale shared by all the lines, or a scale per line of a y scaled chart;
+    // the arrays and the slots are reused when the view is bound to another chart
+    private boolean yScaled;
+    private int scalesCount;
+    private boolean[] scaleVisibilities = new boolean[0];
+    private int[] minVisibleValues = new int[0];
+    private int[] maxVisibleValues = new int[0];
+    private int[] scaleMinSlots = new int[0];
+    private int[] scaleMaxSlots = new int[0];
+
+    // the scale of every line as of the current frame, taken from the animation clock
+    private float bottomY;
+    private float[] lineMinValues = new float[0];
+    private float[] lineYSteps = new float[0];
 
     private int selectedPointIndex = -1;
 
@@ -49,28 +97,33 @@ public class ChartDrawDelegate {
     private float topMarginAxisPx;
 
     private Paint chartPaint = new Paint();
+    // not antialiased, so neighbouring bars and stacked areas join without seams
+    private Paint barPaint = new Paint();
+    private Paint areaPaint = new Paint();
     private Paint selectedPointsPaint = new Paint();
 
-    private ValueAnimator linesAlphaAnimator;
-    private ValueAnimator maxVisibleValueAnimator;
-
-    private RedrawCallback redrawCallback;
-    private MaxVisibleValueListener maxVisibleValueListener;
+    private AnimationClock animationClock;
+    private VisibleValuesListener visibleValuesListener;
 
     public ChartDrawDelegate(
             float lineStrokeWidth,
             float bottomMarginAxisPx,
             float topMarginAxisPx,
-            RedrawCallback redrawCallback,
-            MaxVisibleValueListener maxVisibleValueListener
+            AnimationClock animationClock,
+            VisibleValuesListener visibleValuesListener
     ) {
-        this.redrawCallback = redrawCallback;
-        this.maxVisibleValueListener = maxVisibleValueListener;
+        this.animationClock = animationClock;
+        this.visibleValuesListener = visibleValuesListener;
 
         chartPaint.setStrokeWidth(lineStrokeWidth);
         chartPaint.setStyle(Paint.Style.STROKE);
         chartPaint.setAntiAlias(true);
 
+        barPaint.setStyle(Paint.Style.STROKE);
+        barPaint.setStrokeCap(Paint.Cap.BUTT);
+
+        areaPaint.setStyle(Paint.Style.FILL);
+
         selectedPointsPaint.setStrokeWidth(lineStrokeWidth);
         selectedPointsPaint.setStyle(Paint.Style.STROKE);
         selectedPointsPaint.setAntiAlias(true);
@@ -79,8 +132,9 @@ public class ChartDrawDelegate {
         this.topMarginAxisPx = topMarginAxisPx;
     }
 
-    public void onChartInited(int linesCount, List<Integer> colors, List<List<Integer>> chartOrdinates) {
-        this.linesCount = linesCount;
+    public void onChartInited(Chart chart) {
+        this.chart = chart;
+        this.linesCount = chart.getLinesCount();
 
         linesAlphas = new int[linesCount];
         lineVisibilities = new boolean[linesCount];
@@ -88,9 +142,80 @@ public class ChartDrawDelegate {
         Arrays.fill(linesAlphas, 0xff);
         Arrays.fill(lineVisibilities, true);
 
-        this.colors = colors;
+        if (lineScales.length < linesCount) {
+            lineScales = new float[linesCount];
+            lineMinValues = new float[linesCount];
+            lineYSteps = new float[linesCount];
+        }
+
+        initScales(chart.isYScaled());
+
+        // slots are reused when the view is bound to another chart
+        if (lineAlphaSlots.length < linesCount) {
+            int[] slots = Arrays.copyOf(lineAlphaSlots, linesCount);
+            for (int i = lineAlphaSlots.length; i < linesCount; i++) {
+                slots[i] = animationClock.obtainSlot(0xff);
+            }
+            lineAlphaSlots = slots;
+        }
+        for (int i = 0; i < linesCount; i++) {
+            animationClock.setValue(lineAlphaSlots[i], 0xff);
+        }
+
+        int[] colors = chart.getColors();
+
+        alphaColors = new int[linesCount][0x100];
+        for (int i = 0; i < linesCount; i++) {
+            for (int alpha = 0; alpha <= 0xff; alpha++) {
+                alphaColors[i][alpha] = Color.argb(
+                        alpha,
+                        Color.red(colors[i]),
+                        Color.green(colors[i]),
+                        Color.blue(colors[i])
+                );
+            }
+        }
+
+        this.chartOrdinates = chart.getOrdinates();
+
+        pyramids = new MinMaxPyramid[linesCount];
+        for (int i = 0; i < linesCount; i++) {
+            pyramids[i] = chart.getPyramid(i);
+        }
+
+        if (geometries.length < linesCount) {
+            int oldLength = geometries.length;
+            geometries = Arrays.copyOf(geometries, linesCount);
+            for (int i = oldLength; i < linesCount; i++) {
+                geometries[i] = new LineGeometry();
+            }
+        }
+        for (LineGeometry geometry : geometries) {
+            geometry.invalidate();
+        }
+    }
+
+    private void initScales(boolean yScaled) {
+        this.yScaled = yScaled;
+        this.scalesCount = yScaled ? linesCount : 1;
+
+        if (scaleMinSlots.length < scalesCount) {
+            int oldLength = scaleMinSlots.length;
+
+            scaleVisibilities = new boolean[scalesCount];
+            minVisibleValues = Arrays.copyOf(minVisibleValues, scalesCount);
+            maxVisibleValues = Arrays.copyOf(maxVisibleValues, scalesCount);
+            scaleMinSlots = Arrays.copyOf(scaleMinSlots, scalesCount);
+            scaleMaxSlots = Arrays.copyOf(scaleMaxSlots, scalesCount);
+
+            for (int i = oldLength; i < scalesCount; i++) {
+                scaleMinSlots[i] = animationClock.obtainSlot(0);
+                scaleMaxSlots[i] = animationClock.obtainSlot(0);
+            }
+        }
 
-        this.chartOrdinates = chartOrdinates;
+        // the listener learns about every scale of the new chart with the next vertical params
+        Arrays.fill(scaleVisibilities, false);
     }
 
     public void onHeightChanged(float height) {
@@ -114,111 +239,211 @@ public class ChartDrawDelegate {
         return false;
     }
 
-    public void setLineVisibility(final int lineIndex, boolean visible) {
-        if (linesAlphaAnimator != null) {
-            linesAlphaAnimator.end();
-        }
-        linesAlphaAnimator = ValueAnimator.ofInt(visible ? 0 : 0xff, visible ? 0xff : 0);
-        linesAlphaAnimator.setDuration(ALPHA_ANIMATION_DURATION);
+    public void setLineVisibility(int lineIndex, boolean visible) {
+        // every line has its own slot, so toggling several lines quickly animates all of them
+        animationClock.animate(lineAlphaSlots[lineIndex], visible ? 0xff : 0, ALPHA_ANIMATION_DURATION);
 
-        linesAlphaAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                linesAlphas[lineIndex] = (int) animation.getAnimatedValue();
+        lineVisibilities[lineIndex] = visible;
+    }
 
-                redrawCallback.onRedrawRequired();
-            }
-        });
-        linesAlphaAnimator.start();
+    public void onDrawingParamsChanged(TimeScale timeScale) {
+        // the draw path works with array indexes, which are shifted for a live chart
+        pointsOffset = chart.getPointsOffset();
+
+        // all the lines have the same length, so the same level fits all of them;
+        // buckets of irregular points are as wide as the visible points are on average
+        detailLevel = linesCount == 0 ? 0 : pyramids[0].getLevelForStep(timeScale.getPointWidth(), MAX_BUCKET_WIDTH_PX);
+
+        firstVisibleIndex = pointsOffset + timeScale.getFirstVisiblePointIndex();
+        lastVisibleIndex = pointsOffset + timeScale.getLastVisiblePointIndex();
+        xScale = timeScale.getXScale();
+        barWidth = timeScale.getPointWidth() * (1 << detailLevel);
+
+        projection.setHorizontal(
+                chart.getAbscissa(),
+                timeScale.getOriginTimestamp(),
+                timeScale.getX0(),
+                xScale,
+                firstVisibleIndex,
+                lastVisibleIndex,
+                detailLevel
+        );
 
-        lineVisibilities[lineIndex] = visible;
+        int bufferSize = projection.getBufferSize();
+
+        if (chartPoints.length < bufferSize) {
+            chartPoints = new float[bufferSize];
+        }
     }
 
-    public void onDrawingParamsChanged(float x0, int firstVisiblePointIndex, float xStep, int lastVisiblePointIndex) {
-        this.x0 = x0;
-        this.firstVisiblePointIndex = firstVisiblePointIndex;
-        this.xStep = xStep;
-        this.lastVisiblePointIndex = lastVisiblePointIndex;
+    private void updateAnimatedValues() {
+        for (int i = 0; i < linesCount; i++) {
+            linesAlphas[i] = (int) animationClock.getValue(lineAlphaSlots[i]);
+        }
+
+        float chartHeight = height - bottomMarginAxisPx - topMarginAxisPx;
+        int scale;
+        float minValue;
+
+        bottomY = height - bottomMarginAxisPx;
+
+        for (int i = 0; i < linesCount; i++) {
+            scale = yScaled ? i : 0;
+            minValue = animationClock.getValue(scaleMinSlots[scale]);
+
+            lineMinValues[i] = minValue;
+            // a flat line is drawn at the bottom rather than nowhere
+            lineYSteps[i] = chartHeight / Math.max(animationClock.getValue(scaleMaxSlots[scale]) - minValue, 1);
+        }
 
-        chartPoints = new float[(lastVisiblePointIndex - firstVisiblePointIndex + 1) * 4];
+        // bars and areas are never y scaled, so they share the scale of the first line
+        projection.setVertical(bottomY, linesCount == 0 ? 0 : lineYSteps[0]);
     }
 
-    private void onMaxVisibleValueChanged(int newMaxVisibleValue) {
-        yStep = (height - bottomMarginAxisPx - topMarginAxisPx) / newMaxVisibleValue;
+    private float getY(int lineIndex, float value) {
+        return bottomY - (value - lineMinValues[lineIndex]) * lineYSteps[lineIndex];
     }
 
     public void drawChart(Canvas canvas) {
-        int chartPointsIndex;
-        int tempColor;
-        List<Integer> chartOrdinate;
-        float previousX;
-        float previousY;
-        int pointValue;
-        float nextX;
-        float nextY;
+        // a live chart has nothing to draw until it gets two points
+        if (chart == null || chart.getPointsCount() < 2 || lastVisibleIndex < firstVisibleIndex) return;
+
+        updateAnimatedValues();
+
+        if (chart.getType() != Chart.TYPE_LINE) {
+            drawStack(canvas);
+            return;
+        }
+
+        if (chart instanceof LiveChart) {
+            long appendedPointsCount = ((LiveChart) chart).getAppendedPointsCount();
+
+            if (appendedPointsCount != geometriesAppendedPointsCount) {
+                geometriesAppendedPointsCount = appendedPointsCount;
+
+                for (int i = 0; i < linesCount; i++) {
+                    geometries[i].invalidate();
+                }
+            }
+        }
+
+        LineGeometry geometry;
+        int offset;
+        int length;
 
         for (int i = 0; i < linesCount; i++) {
             if (linesAlphas[i] == 0) {
                 continue; // skip muted charts
             }
 
-            chartPointsIndex = 0;
+            chartPaint.setColor(alphaColors[i][linesAlphas[i]]);
+
+            geometry = geometries[i];
 
-            tempColor = colors.get(i);
+            if (!geometry.contains(firstVisibleIndex, lastVisibleIndex, detailLevel)) {
+                buildGeometry(i);
+            }
 
-            int color = Color.argb(
-                    linesAlphas[i],
-                    Color.red(tempColor),
-                    Color.green(tempColor),
-                    Color.blue(tempColor)
+            // pans, zooms within a detail level and the max value animation read no data, yet the visible
+            // segments are still mapped one by one: a canvas transform would scale the stroke width as well,
+            // and the x and y scales are far too different for a stroke width to make up for it
+            offset = geometry.getOffset(firstVisibleIndex);
+            length = geometry.getLength(firstVisibleIndex, lastVisibleIndex);
+
+            geometry.map(
+                    offset,
+                    length,
+                    projection.getX(geometry.getFirstIndex()),
+                    xScale,
+                    getY(i, 0),
+                    lineYSteps[i],
+                    chartPoints
             );
 
-            chartPaint.setColor(color);
-            chartOrdinate = chartOrdinates.get(i);
+            canvas.drawLines(chartPoints, 0, length, chartPaint);
+        }
+    }
+
+    // one draw call per line: all of its bars as a single drawLines, its area as a single path
+    private void drawStack(Canvas canvas) {
+        boolean stacked = chart.isStacked();
+
+        // stacked lines shrink rather than fade away when hidden, so the lines above them move down
+        for (int i = 0; i < linesCount; i++) {
+            lineScales[i] = stacked ? linesAlphas[i] / (float) 0xff : 1;
+        }
 
-            previousX = x0 + firstVisiblePointIndex * xStep;
-            pointValue = chartOrdinate.get(firstVisiblePointIndex);
-            previousY = height - bottomMarginAxisPx - pointValue * yStep;
+        int length = stackProjection.project(chartOrdinates, lineScales, stacked, chart.isPercentage(), projection);
 
-            for (int j = firstVisiblePointIndex + 1; j < lastVisiblePointIndex; j++) {
-                nextX = x0 + j * xStep;
-                pointValue = chartOrdinate.get(j);
-                nextY = height - bottomMarginAxisPx - pointValue * yStep;
+        if (length == 0) return;
 
-                chartPoints[chartPointsIndex++] = previousX;
-                chartPoints[chartPointsIndex++] = previousY;
-                chartPoints[chartPointsIndex++] = nextX;
-                chartPoints[chartPointsIndex++] = nextY;
+        boolean bars = chart.getType() == Chart.TYPE_BAR;
+        int alpha;
+        float[] points;
 
-                previousX = nextX;
-                previousY = nextY;
-            }
+        barPaint.setStrokeWidth(barWidth);
 
-            nextX = x0 + lastVisiblePointIndex * xStep;
-            pointValue = chartOrdinate.get(lastVisiblePointIndex);
-            nextY = height - bottomMarginAxisPx - pointValue * yStep;
+        for (int i = 0; i < linesCount; i++) {
+            if (linesAlphas[i] == 0) {
+                continue; // skip muted charts
+            }
 
-            chartPoints[chartPointsIndex++] = previousX;
-            chartPoints[chartPointsIndex++] = previousY;
-            chartPoints[chartPointsIndex++] = nextX;
-            chartPoints[chartPointsIndex++] = nextY;
+            alpha = stacked ? 0xff : linesAlphas[i];
+            points = stackProjection.getPoints(i);
+
+            if (bars) {
+                barPaint.setColor(alphaColors[i][alpha]);
+                canvas.drawLines(points, 0, length, barPaint);
+            } else {
+                // along the tops of the points and back along their bottoms
+                areaPath.rewind();
+                areaPath.moveTo(points[0], points[3]);
+                for (int k = 4; k < length; k += 4) {
+                    areaPath.lineTo(points[k], points[k + 3]);
+                }
+                for (int k = length - 4; k >= 0; k -= 4) {
+                    areaPath.lineTo(points[k], points[k + 1]);
+                }
+                areaPath.close();
 
-            canvas.drawLines(chartPoints, chartPaint);
+                areaPaint.setColor(alphaColors[i][alpha]);
+                canvas.drawPath(areaPath, areaPaint);
+            }
         }
     }
 
+    // the span is three times as wide as the visible points, so a drag rebuilds it once per screen width
+    private void buildGeometry(int lineIndex) {
+        int visibleCount = lastVisibleIndex - firstVisibleIndex + 1;
+
+        int firstIndex = Math.max(firstVisibleIndex - visibleCount, pointsOffset);
+        int lastIndex = Math.min(lastVisibleIndex + visibleCount, pointsOffset + chart.getPointsCount() - 1);
+
+        geometries[lineIndex].build(
+                chart.getAbscissa(),
+                chartOrdinates[lineIndex],
+                pyramids[lineIndex],
+                firstIndex,
+                lastIndex,
+                detailLevel
+        );
+    }
+
     public void drawSelectedPoints(
             Canvas canvas,
             Paint verticalAxisPaint,
             Paint backgroundPaint
     ) {
-        if (selectedPointIndex < 0) return;
+        if (selectedPointIndex < 0 || chart.getPointsCount() < 2) return;
+
+        updateAnimatedValues();
 
         int pointValue;
 
-        float nextX = x0 + xStep * selectedPointIndex;
+        int selectedArrayIndex = pointsOffset + selectedPointIndex;
+
+        float nextX = projection.getX(selectedArrayIndex);
         float nextY;
-        int tempColor;
 
         canvas.drawLine(
                 nextX,
@@ -228,22 +453,16 @@ public class ChartDrawDelegate {
                 verticalAxisPaint
         );
 
+        // bars and areas are marked by the line only
+        if (chart.getType() != Chart.TYPE_LINE) return;
+
         for (int i = 0; i < linesCount; i++) {
             if (lineVisibilities[i]) {
 
-                tempColor = colors.get(i);
-
-                int color = Color.argb(
-                        linesAlphas[i],
-                        Color.red(tempColor),
-                        Color.green(tempColor),
-                        Color.blue(tempColor)
-                );
-
-                selectedPointsPaint.setColor(color);
+                selectedPointsPaint.setColor(alphaColors[i][linesAlphas[i]]);
 
-                pointValue = chartOrdinates.get(i).get(selectedPointIndex);
-                nextY = height - bottomMarginAxisPx - pointValue * yStep;
+                pointValue = chartOrdinates[i][selectedArrayIndex];
+                nextY = getY(i, pointValue);
 
                 canvas.drawCircle(nextX, nextY, 10, backgroundPaint);
                 canvas.drawCircle(nextX, nextY, 10, selectedPointsPaint);
@@ -251,53 +470,77 @@ public class ChartDrawDelegate {
         }
     }
 
-    private int getMaxVisibleValue(double startPercent, double endPercent) {
-        int totalPointsNumber = chartOrdinates.get(0).size();
-
-        int firstVisiblePointIndex = (int) (totalPointsNumber * startPercent);
-        int lastVisiblePointIndex = (int) Math.ceil(totalPointsNumber * endPercent);
-
-        if (firstVisiblePointIndex > 0 && firstVisiblePointIndex == totalPointsNumber) {
-            firstVisiblePointIndex = totalPointsNumber - 1;
+    // line alphas or the scales are animated
+    public boolean isAnimating() {
+        for (int i = 0; i < scalesCount; i++) {
+            if (animationClock.isRunning(scaleMinSlots[i]) || animationClock.isRunning(scaleMaxSlots[i])) {
+                return true;
+            }
         }
 
-        List<List<Integer>> visiblePointValues = new ArrayList<>();
-
         for (int i = 0; i < linesCount; i++) {
-            if (isLineVisible(i)) {
-                visiblePointValues.add(chartOrdinates.get(i).subList(firstVisiblePointIndex, lastVisiblePointIndex));
+            if (animationClock.isRunning(lineAlphaSlots[i])) {
+                return true;
             }
         }
 
-        return (visiblePointValues.isEmpty()) ? 0 : getMaxValue(visiblePointValues);
+        return false;
     }
 
+    // O(log n) per scale, as every line answers its visible min and max from its range index
     public void updateVerticalDrawingParams(double startPercent, double endPercent) {
-        int newMaxVisibleValue = getMaxVisibleValue(startPercent, endPercent);
+        if (!yScaled) {
+            int maxValue = linesCount == 0 ? 0 : chart.getMaxValue(lineVisibilities, startPercent, endPercent);
 
-        if (newMaxVisibleValue != maxVisibleValue) {
-            if (maxVisibleValueListener != null) {
-                maxVisibleValueListener.onMaxVisibleValueChanged(maxVisibleValue, newMaxVisibleValue);
-            }
+            setVisibleValues(0, areLinesVisible(), 0, maxValue);
+            return;
+        }
 
-            if (maxVisibleValueAnimator != null) {
-                maxVisibleValueAnimator.pause();
+        for (int i = 0; i < linesCount; i++) {
+            if (lineVisibilities[i]) {
+                setVisibleValues(
+                        i,
+                        true,
+                        chart.getMinValue(i, startPercent, endPercent),
+                        chart.getMaxValue(i, startPercent, endPercent)
+                );
+            } else {
+                // a hidden line keeps its scale while it fades out
+                setVisibleValues(i, false, minVisibleValues[i], maxVisibleValues[i]);
             }
+        }
+    }
 
-            maxVisibleValueAnimator = ValueAnimator.ofInt(maxVisibleValue, newMaxVisibleValue);
-            maxVisibleValueAnimator.setDuration(LINES_HEIGHT_ANIMATION_DURATION);
-            maxVisibleValueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    onMaxVisibleValueChanged((int) animation.getAnimatedValue());
+    private void setVisibleValues(int scaleIndex, boolean visible, int minValue, int maxValue) {
+        int previousMinValue = minVisibleValues[scaleIndex];
+        int previousMaxValue = maxVisibleValues[scaleIndex];
 
-                    redrawCallback.onRedrawRequired();
-                }
-            });
-            maxVisibleValueAnimator.start();
+        if (visible == scaleVisibilities[scaleIndex] && minValue == previousMinValue && maxValue == previousMaxValue) {
+            return;
+        }
 
-            maxVisibleValue = newMaxVisibleValue;
+        if (visibleValuesListener != null) {
+            visibleValuesListener.onVisibleValuesChanged(
+                    scaleIndex,
+                    visible,
+                    previousMinValue,
+                    previousMaxValue,
+                    minValue,
+                    maxValue
+            );
         }
+
+        // every scale has its own slots, so the lines of a y scaled chart move independently
+        if (minValue != previousMinValue) {
+            animationClock.animate(scaleMinSlots[scaleIndex], minValue, LINES_HEIGHT_ANIMATION_DURATION);
+        }
+        if (maxValue != previousMaxValue) {
+            animationClock.animate(scaleMaxSlots[scaleIndex], maxValue, LINES_HEIGHT_ANIMATION_DURATION);
+        }
+
+        scaleVisibilities[scaleIndex] = visible;
+        minVisibleValues[scaleIndex] = minValue;
+        maxVisibleValues[scaleIndex] = maxValue;
     }
 
 }
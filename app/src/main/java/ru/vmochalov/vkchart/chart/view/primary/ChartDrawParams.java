@@ -0,0 +1,65 @@
+package ru.vmochalov.vkchart.chart.view.primary;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+
+/**
+ * What the render thread draws a primary chart from, as set on the main thread. Instances are
+ * reused but never changed while another thread may read them: the main thread fills a spare one
+ * and swaps it in, the render thread swaps it out and copies what it has applied.
+ */
+class ChartDrawParams {
+
+    Chart chart;
+    // changes with every setChart, so binding the same chart again is noticed
+    int chartGeneration;
+
+    int width;
+    int height;
+
+    double startPercent = 0;
+    double endPercent = 1;
+
+    // grow-only, the first chart.getLinesCount() values are meaningful
+    boolean[] lineVisibilities = new boolean[0];
+
+    int selectedPointIndex = -1;
+
+    boolean nightModeOn;
+
+    // changes with every finishAnimations
+    int finishAnimationsGeneration;
+
+    // null unless the frame metrics are on
+    ChartMetrics metrics;
+
+    void set(ChartDrawParams params) {
+        chart = params.chart;
+        chartGeneration = params.chartGeneration;
+        width = params.width;
+        height = params.height;
+        startPercent = params.startPercent;
+        endPercent = params.endPercent;
+        selectedPointIndex = params.selectedPointIndex;
+        nightModeOn = params.nightModeOn;
+        finishAnimationsGeneration = params.finishAnimationsGeneration;
+        metrics = params.metrics;
+
+        if (lineVisibilities.length < params.lineVisibilities.length) {
+            lineVisibilities = new boolean[params.lineVisibilities.length];
+        }
+
+        System.arraycopy(params.lineVisibilities, 0, lineVisibilities, 0, params.lineVisibilities.length);
+    }
+
+    void setLinesCount(int linesCount) {
+        if (lineVisibilities.length < linesCount) {
+            lineVisibilities = new boolean[linesCount];
+        }
+
+        for (int i = 0; i < linesCount; i++) {
+            lineVisibilities[i] = true;
+        }
+    }
+
+}
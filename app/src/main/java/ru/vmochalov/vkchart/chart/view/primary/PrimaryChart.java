@@ -0,0 +1,36 @@
+package ru.vmochalov.vkchart.chart.view.primary;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+import ru.vmochalov.vkchart.chart.view.common.OnChartClickedListener;
+
+/**
+ * The primary chart as ChartView sees it, drawn either on the main thread by PrimaryChartView
+ * or on a render thread of its own by RenderThreadPrimaryChartView.
+ */
+public interface PrimaryChart {
+
+    void setChart(Chart chart);
+
+    // applies the range right away, used when the view is bound to another chart
+    void setVisibleRange(double startVisiblePercent, double endVisiblePercent);
+
+    // applies the range with the next frame, several ranges within a frame are coalesced
+    void onVisibleRangeChanged(double startVisiblePercent, double endVisiblePercent);
+
+    void onPointsAppended(int appendedCount);
+
+    void setLineVisibility(String lineId, boolean visible);
+
+    void finishAnimations();
+
+    void onNightModeChanged(boolean nightModeOn);
+
+    void setOnChartClickedListener(OnChartClickedListener listener);
+
+    void setMetrics(ChartMetrics metrics);
+
+    // drops the cached layers while the chart is off the screen, they are painted again when it is drawn
+    void releaseLayers();
+
+}
@@ -4,31 +4,37 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import ru.vmochalov.vkchart.chart.view.common.OnChartClickedListener;
-import ru.vmochalov.vkchart.chart.view.common.delegates.ChartDrawDelegate;
-import ru.vmochalov.vkchart.chart.view.primary.delegates.HorizontalLabelsDrawDelegate;
 
 /**
  * Created by Vladimir Mochalov on 25.01.2020.
  */
 public class PrimaryChartOnTouchListener implements View.OnTouchListener {
 
+    // the view whose points are touched, it may draw on another thread
+    interface Target {
+        int getClosestPointIndex(float x);
+
+        void setSelectedPointIndex(int selectedPointIndex);
+    }
+
     private float initialX;
     private float initialY;
 
     private boolean isHorizontalGesture;
 
-    private HorizontalLabelsDrawDelegate horizontalLabelsDrawDelegate;
-    private ChartDrawDelegate chartDrawDelegate;
+    // the gesture is a tap until the finger moves further than the touch slop
+    private int touchSlop;
+    private boolean isTap;
+
+    private int selectedPointIndex = -1;
+
+    private Target target;
     private OnChartClickedListener onChartClickedListener;
 
-    PrimaryChartOnTouchListener(
-            HorizontalLabelsDrawDelegate horizontalLabelsDrawDelegate,
-            ChartDrawDelegate chartDrawDelegate,
-            OnChartClickedListener onChartClickedListener
-    ) {
-        this.horizontalLabelsDrawDelegate = horizontalLabelsDrawDelegate;
-        this.chartDrawDelegate = chartDrawDelegate;
+    PrimaryChartOnTouchListener(Target target, OnChartClickedListener onChartClickedListener, int touchSlop) {
+        this.target = target;
         this.onChartClickedListener = onChartClickedListener;
+        this.touchSlop = touchSlop;
     }
 
     @Override
@@ -36,28 +42,30 @@ public class PrimaryChartOnTouchListener implements View.OnTouchListener {
         if (event.getAction() == MotionEvent.ACTION_DOWN) {
             initialX = event.getX();
             initialY = event.getY();
+            isTap = true;
 
-            int selectedPointIndex = horizontalLabelsDrawDelegate.getClosestPointIndex(event.getX());
-
-            chartDrawDelegate.setSelectedPointIndex(selectedPointIndex);
-
-            onChartClickedListener.onTouch(
-                    event.getX(),
-                    selectedPointIndex,
-                    chartDrawDelegate.areLinesVisible()
-            );
+            // the view may have been bound to another chart since the last gesture
+            selectedPointIndex = -1;
+            selectPoint(chartView, target.getClosestPointIndex(event.getX()));
         } else if (event.getAction() == MotionEvent.ACTION_UP) {
-            chartDrawDelegate.setSelectedPointIndex(-1);
+            int clickedPointIndex = isTap ? selectedPointIndex : -1;
+
+            selectPoint(chartView, -1);
 
             isHorizontalGesture = false;
 
-            onChartClickedListener.onButtonUp();
             onChartClickedListener.onGestureDirectionChanged(isHorizontalGesture);
 
+            if (clickedPointIndex >= 0) {
+                onChartClickedListener.onPointClicked(clickedPointIndex);
+            }
+
         } else if (event.getAction() == MotionEvent.ACTION_MOVE) {
-            int lastSelectedPointIndex = horizontalLabelsDrawDelegate.getClosestPointIndex(event.getX());
+            selectPoint(chartView, target.getClosestPointIndex(event.getX()));
 
-            chartDrawDelegate.setSelectedPointIndex(lastSelectedPointIndex);
+            if (isTap && Math.hypot(event.getX() - initialX, event.getY() - initialY) > touchSlop) {
+                isTap = false;
+            }
 
             boolean isHorizontal = isHorizontalMovement(event.getX(), event.getY());
 
@@ -67,24 +75,26 @@ public class PrimaryChartOnTouchListener implements View.OnTouchListener {
                 onChartClickedListener.onGestureDirectionChanged(isHorizontalGesture);
             }
 
-            onChartClickedListener.onTouch(
-                    event.getX(),
-                    lastSelectedPointIndex,
-                    chartDrawDelegate.areLinesVisible()
-            );
-
         } else {
             isHorizontalGesture = false;
-            chartDrawDelegate.setSelectedPointIndex(-1);
+            selectPoint(chartView, -1);
 
             onChartClickedListener.onGestureDirectionChanged(isHorizontalGesture);
         }
 
-        chartView.invalidate();
-
         return true;
     }
 
+    // moves within the same point neither change the selection nor redraw
+    private void selectPoint(View chartView, int pointIndex) {
+        if (pointIndex == selectedPointIndex) return;
+
+        selectedPointIndex = pointIndex;
+        target.setSelectedPointIndex(pointIndex);
+
+        chartView.invalidate();
+    }
+
     private boolean isHorizontalMovement(float updatedX, float updatedY) {
         if (initialX == updatedX) return false;
 
@@ -0,0 +1,365 @@
+package ru.vmochalov.vkchart.chart.view.primary;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+
+import ru.vmochalov.vkchart.R;
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.layout.TimeScale;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
+import ru.vmochalov.vkchart.chart.view.common.ChartLayer;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
+import ru.vmochalov.vkchart.chart.view.common.delegates.ChartDrawDelegate;
+import ru.vmochalov.vkchart.chart.view.primary.delegates.BackgroundDrawDelegate;
+import ru.vmochalov.vkchart.chart.view.primary.delegates.HorizontalLabelsDrawDelegate;
+import ru.vmochalov.vkchart.chart.view.primary.delegates.SelectedPointInfoDrawDelegate;
+import ru.vmochalov.vkchart.chart.view.primary.delegates.VerticalAxisDrawDelegate;
+
+/**
+ * The draw delegates of the primary chart and the state they are drawn from. Not thread safe:
+ * PrimaryChartView uses it on the main thread, RenderThreadPrimaryChartView on its render thread,
+ * so both modes draw exactly the same way.
+ */
+class PrimaryChartRenderer {
+
+    private static final int TOP_AXIS_MARGIN_PX = 40;
+    private static final int BOTTOM_AXIS_MARGIN_PX = 60;
+
+    private Chart chart;
+
+    private double startPercent = 0;
+    private double endPercent = 1;
+
+    private float width;
+    private float height;
+
+    private TimeScale timeScale = new TimeScale();
+    private boolean timeScaleSet;
+
+    private int selectedPointIndex = -1;
+
+    private AnimationClock animationClock;
+
+    // null unless the frame metrics are on
+    private ChartMetrics metrics;
+
+    private BackgroundDrawDelegate backgroundDrawDelegate;
+    private VerticalAxisDrawDelegate verticalAxisDrawDelegate;
+    private HorizontalLabelsDrawDelegate horizontalLabelsDrawDelegate;
+    private ChartDrawDelegate chartDrawDelegate;
+    private SelectedPointInfoDrawDelegate selectedPointInfoDrawDelegate;
+
+    // cached apart, so each of them is painted again only when its own inputs change
+    private ChartLayer backgroundLayer = new ChartLayer(new ChartLayer.Painter() {
+        @Override
+        public void paint(Canvas canvas) {
+            beginSection(ChartMetrics.SECTION_BACKGROUND);
+            backgroundDrawDelegate.drawBackground(canvas);
+            endSection(ChartMetrics.SECTION_BACKGROUND);
+
+            beginSection(ChartMetrics.SECTION_VERTICAL_AXIS);
+            verticalAxisDrawDelegate.drawVerticalAxis(canvas);
+            endSection(ChartMetrics.SECTION_VERTICAL_AXIS);
+        }
+    });
+
+    private ChartLayer linesLayer = new ChartLayer(new ChartLayer.Painter() {
+        @Override
+        public void paint(Canvas canvas) {
+            beginSection(ChartMetrics.SECTION_LINES);
+            chartDrawDelegate.drawChart(canvas);
+            endSection(ChartMetrics.SECTION_LINES);
+        }
+    });
+
+    private ChartLayer labelsLayer = new ChartLayer(new ChartLayer.Painter() {
+        @Override
+        public void paint(Canvas canvas) {
+            beginSection(ChartMetrics.SECTION_VERTICAL_LABELS);
+            verticalAxisDrawDelegate.drawVerticalLabels(canvas);
+            endSection(ChartMetrics.SECTION_VERTICAL_LABELS);
+
+            beginSection(ChartMetrics.SECTION_HORIZONTAL_LABELS);
+            horizontalLabelsDrawDelegate.drawHorizontalLabels(canvas);
+            endSection(ChartMetrics.SECTION_HORIZONTAL_LABELS);
+        }
+    });
+
+    // whether the delegates were animating as of the previous frame
+    private boolean axisAnimated;
+    private boolean linesAnimated;
+    private boolean labelsAnimated;
+
+    PrimaryChartRenderer(Context context, AttributeSet attributeSet, RedrawCallback redrawCallback) {
+        TypedArray attributes = context.obtainStyledAttributes(attributeSet, R.styleable.PrimaryChartView);
+        Resources resources = context.getResources();
+
+        int axisTextSize = attributes.getDimensionPixelSize(
+                R.styleable.PrimaryChartView_axisTextSize,
+                resources.getDimensionPixelSize(R.dimen.chartViewDefaultTextSize)
+        );
+
+        int lineStrokeWidth = attributes.getDimensionPixelSize(
+                R.styleable.PrimaryChartView_chartLineWidth,
+                resources.getDimensionPixelSize(R.dimen.chartViewDefaultLineStrokeWidth)
+        );
+
+        int axisStrokeWidth = attributes.getDimensionPixelSize(
+                R.styleable.PrimaryChartView_axisLineWidth,
+                resources.getDimensionPixelSize(R.dimen.chartViewDefaultAxisStrokeWidth)
+        );
+
+        attributes.recycle();
+
+        animationClock = new AnimationClock(redrawCallback);
+
+        backgroundDrawDelegate = new BackgroundDrawDelegate(resources);
+        verticalAxisDrawDelegate = new VerticalAxisDrawDelegate(
+                resources,
+                axisStrokeWidth,
+                axisTextSize,
+                BOTTOM_AXIS_MARGIN_PX,
+                TOP_AXIS_MARGIN_PX,
+                animationClock
+        );
+
+        horizontalLabelsDrawDelegate = new HorizontalLabelsDrawDelegate(
+                resources,
+                axisTextSize,
+                axisStrokeWidth,
+                animationClock
+        );
+
+        selectedPointInfoDrawDelegate = new SelectedPointInfoDrawDelegate(resources);
+
+        chartDrawDelegate = new ChartDrawDelegate(
+                lineStrokeWidth,
+                BOTTOM_AXIS_MARGIN_PX,
+                TOP_AXIS_MARGIN_PX,
+                animationClock,
+                new ChartDrawDelegate.VisibleValuesListener() {
+                    @Override
+                    public void onVisibleValuesChanged(
+                            int scaleIndex,
+                            boolean scaleVisible,
+                            int previousMinValue,
+                            int previousMaxValue,
+                            int newMinValue,
+                            int newMaxValue
+                    ) {
+                        // only the first two lines of a y scaled chart have labels, at the left and at the right
+                        if (scaleIndex > VerticalAxisDrawDelegate.SIDE_RIGHT) return;
+
+                        verticalAxisDrawDelegate.onLinesVisibilityUpdated(
+                                scaleIndex,
+                                scaleVisible,
+                                newMinValue,
+                                newMaxValue
+                        );
+
+                        if (newMinValue != previousMinValue || newMaxValue != previousMaxValue) {
+                            verticalAxisDrawDelegate.animateVerticalAxis(
+                                    scaleIndex,
+                                    previousMaxValue != previousMinValue
+                                            && (long) newMaxValue - newMinValue < (long) previousMaxValue - previousMinValue
+                            );
+                        }
+                    }
+                }
+        );
+    }
+
+    void setMetrics(ChartMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setSize(float width, float height) {
+        this.width = width;
+        this.height = height;
+
+        backgroundDrawDelegate.setCanvasSize(width, height);
+        verticalAxisDrawDelegate.setCanvasSize(width, height);
+
+        horizontalLabelsDrawDelegate.onHeightChanged(height);
+        chartDrawDelegate.onHeightChanged(height);
+
+        updateDrawingParams();
+    }
+
+    void setChart(Chart chart) {
+        this.chart = chart;
+        this.selectedPointIndex = -1;
+        // the scale is of the previous chart until the drawing params are updated
+        this.timeScaleSet = false;
+
+        horizontalLabelsDrawDelegate.onChartInited(chart);
+        verticalAxisDrawDelegate.onChartInited(chart);
+        chartDrawDelegate.onChartInited(chart);
+        chartDrawDelegate.setSelectedPointIndex(-1);
+        selectedPointInfoDrawDelegate.onChartInited(chart);
+
+        updateDrawingParams();
+    }
+
+    Chart getChart() {
+        return chart;
+    }
+
+    // takes effect with the next updateDrawingParams
+    void setVisibleRange(double startPercent, double endPercent) {
+        this.startPercent = startPercent;
+        this.endPercent = endPercent;
+    }
+
+    void onPointsAppended(int appendedCount) {
+        horizontalLabelsDrawDelegate.onPointsAppended(appendedCount);
+    }
+
+    void setLineVisibility(int lineIndex, boolean visible) {
+        if (chartDrawDelegate.isLineVisible(lineIndex) != visible) {
+            chartDrawDelegate.setLineVisibility(lineIndex, visible);
+            chartDrawDelegate.updateVerticalDrawingParams(startPercent, endPercent);
+            selectedPointInfoDrawDelegate.setLineVisibility(lineIndex, visible);
+
+            linesLayer.invalidate();
+            // the labels of a y scaled line are hidden along with it
+            labelsLayer.invalidate();
+        }
+    }
+
+    void setSelectedPointIndex(int selectedPointIndex) {
+        this.selectedPointIndex = selectedPointIndex;
+
+        chartDrawDelegate.setSelectedPointIndex(selectedPointIndex);
+        selectedPointInfoDrawDelegate.setSelectedPointIndex(selectedPointIndex);
+    }
+
+    int getClosestPointIndex(float x) {
+        return horizontalLabelsDrawDelegate.getClosestPointIndex(x);
+    }
+
+    void onNightModeChanged(boolean nightModeOn) {
+        backgroundDrawDelegate.onNightModeChanged(nightModeOn);
+        verticalAxisDrawDelegate.onNightModeChanged(nightModeOn);
+        horizontalLabelsDrawDelegate.onNightModeChanged(nightModeOn);
+        selectedPointInfoDrawDelegate.onNightModeChanged(nightModeOn);
+
+        backgroundLayer.invalidate();
+        labelsLayer.invalidate();
+    }
+
+    // jumps the running animations to their end
+    void finishAnimations() {
+        animationClock.stop();
+
+        invalidateLayers();
+    }
+
+    // the range or the points have changed, which every layer depends on
+    void updateDrawingParams() {
+        invalidateLayers();
+
+        if (chart != null && chart.getPointsCount() > 1 && width > 0 && height > 0) {
+            chartDrawDelegate.updateVerticalDrawingParams(startPercent, endPercent);
+            initVariablesForHorizontalChartDrawing(width);
+            horizontalLabelsDrawDelegate.updatedHorizontalLabelsScale();
+        }
+    }
+
+    private void initVariablesForHorizontalChartDrawing(float width) {
+        timeScale.set(chart, width, startPercent, endPercent);
+        timeScaleSet = true;
+
+        horizontalLabelsDrawDelegate.onDrawingParamsChanged(timeScale);
+        chartDrawDelegate.onDrawingParamsChanged(timeScale);
+    }
+
+    void draw(Canvas canvas) {
+        beginSection(ChartMetrics.SECTION_FRAME);
+
+        invalidateAnimatedLayers();
+
+        int layerWidth = (int) width;
+        int layerHeight = (int) height;
+
+        backgroundLayer.draw(canvas, layerWidth, layerHeight);
+        linesLayer.draw(canvas, layerWidth, layerHeight);
+        labelsLayer.draw(canvas, layerWidth, layerHeight);
+
+        // the selection overlay is all that is painted again while the finger scrubs
+        beginSection(ChartMetrics.SECTION_SELECTED_POINTS);
+        chartDrawDelegate.drawSelectedPoints(
+                canvas,
+                verticalAxisDrawDelegate.getVerticalAxisPaint(),
+                backgroundDrawDelegate.getBackgroundPaint()
+        );
+        endSection(ChartMetrics.SECTION_SELECTED_POINTS);
+
+        beginSection(ChartMetrics.SECTION_SELECTED_POINT_INFO);
+        if (selectedPointIndex >= 0 && timeScaleSet) {
+            selectedPointInfoDrawDelegate.drawSelectedPointInfo(canvas, timeScale.getX(selectedPointIndex), width);
+        }
+        endSection(ChartMetrics.SECTION_SELECTED_POINT_INFO);
+
+        endSection(ChartMetrics.SECTION_FRAME);
+    }
+
+    // a layer is painted with every animation frame and once more with the frame its animation has ended on
+    private void invalidateAnimatedLayers() {
+        boolean axisAnimating = verticalAxisDrawDelegate.isAnimating();
+        boolean linesAnimating = chartDrawDelegate.isAnimating();
+        boolean labelsAnimating = horizontalLabelsDrawDelegate.isAnimating();
+
+        if (axisAnimating || axisAnimated) {
+            backgroundLayer.invalidate();
+            labelsLayer.invalidate();
+        }
+
+        if (linesAnimating || linesAnimated) {
+            linesLayer.invalidate();
+        }
+
+        if (labelsAnimating || labelsAnimated) {
+            labelsLayer.invalidate();
+        }
+
+        axisAnimated = axisAnimating;
+        linesAnimated = linesAnimating;
+        labelsAnimated = labelsAnimating;
+    }
+
+    private void invalidateLayers() {
+        backgroundLayer.invalidate();
+        linesLayer.invalidate();
+        labelsLayer.invalidate();
+    }
+
+    // the caches are painted again when needed
+    void releaseLayers() {
+        backgroundLayer.release();
+        linesLayer.release();
+        labelsLayer.release();
+    }
+
+    // times the layers have been painted rather than drawn from their caches
+    int getLayerPaintsCount() {
+        return backgroundLayer.getPaintsCount() + linesLayer.getPaintsCount() + labelsLayer.getPaintsCount();
+    }
+
+    void beginSection(int section) {
+        if (metrics != null) {
+            metrics.beginSection(section);
+        }
+    }
+
+    void endSection(int section) {
+        if (metrics != null) {
+            metrics.endSection(section);
+        }
+    }
+
+}
@@ -1,106 +1,76 @@
 package ru.vmochalov.vkchart.chart.view.primary;
 
 import android.content.Context;
-import android.content.res.Resources;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
+import android.view.ViewConfiguration;
 
-import ru.vmochalov.vkchart.R;
 import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
 import ru.vmochalov.vkchart.chart.view.common.OnChartClickedListener;
 import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
-import ru.vmochalov.vkchart.chart.view.common.delegates.ChartDrawDelegate;
-import ru.vmochalov.vkchart.chart.view.primary.delegates.BackgroundDrawDelegate;
-import ru.vmochalov.vkchart.chart.view.primary.delegates.HorizontalLabelsDrawDelegate;
-import ru.vmochalov.vkchart.chart.view.primary.delegates.VerticalAxisDrawDelegate;
 
 /**
  * Created by Vladimir Mochalov on 10.03.2019.
  */
-public class PrimaryChartView extends View {
-
-    private final int TOP_AXIS_MARGIN_PX = 40;
-    private final int BOTTOM_AXIS_MARGIN_PX = 60;
+public class PrimaryChartView extends View implements PrimaryChart {
 
     private Chart chart;
 
-    private double startPercent = 0;
-    private double endPercent = 1;
+    private PrimaryChartRenderer renderer;
+
+    // null unless the frame metrics are on
+    private ChartMetrics metrics;
 
-    // styleable attributes
-    private int axisTextSize;
-    private int lineStrokeWidth;
-    private int axisStrokeWidth;
+    // navigator drags may deliver several ranges per frame, only the latest one is applied
+    private boolean rangeUpdatePending;
+    private long lastRangeUpdateNanos;
+    private int coalescedRangeUpdatesCount;
 
-    private BackgroundDrawDelegate backgroundDrawDelegate;
-    private VerticalAxisDrawDelegate verticalAxisDrawDelegate;
-    private HorizontalLabelsDrawDelegate horizontalLabelsDrawDelegate;
-    private ChartDrawDelegate chartDrawDelegate;
+    private Choreographer.FrameCallback rangeUpdateCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyPendingRangeUpdate();
+            invalidate();
+        }
+    };
+
+    private PrimaryChartOnTouchListener.Target touchTarget = new PrimaryChartOnTouchListener.Target() {
+        @Override
+        public int getClosestPointIndex(float x) {
+            return renderer.getClosestPointIndex(x);
+        }
+
+        @Override
+        public void setSelectedPointIndex(int selectedPointIndex) {
+            renderer.setSelectedPointIndex(selectedPointIndex);
+        }
+    };
 
     public PrimaryChartView(Context context) {
         super(context);
 
-        init();
+        init(null);
     }
 
     public PrimaryChartView(Context context, AttributeSet attributeSet) {
         super(context, attributeSet);
 
-        handleAttributeSet(attributeSet);
-        init();
+        init(attributeSet);
     }
 
     public PrimaryChartView(Context context, AttributeSet attributeSet, int defStyleAttr) {
         super(context, attributeSet, defStyleAttr);
 
-        handleAttributeSet(attributeSet);
-        init();
+        init(attributeSet);
     }
 
-    private void handleAttributeSet(AttributeSet attributeSet) {
-        TypedArray attributes = getContext().obtainStyledAttributes(attributeSet, R.styleable.PrimaryChartView);
-        Resources resources = getContext().getResources();
-
-        axisTextSize = attributes.getDimensionPixelSize(
-                R.styleable.PrimaryChartView_axisTextSize,
-                resources.getDimensionPixelSize(R.dimen.chartViewDefaultTextSize)
-        );
-
-        lineStrokeWidth = attributes.getDimensionPixelSize(
-                R.styleable.PrimaryChartView_chartLineWidth,
-                resources.getDimensionPixelSize(R.dimen.chartViewDefaultLineStrokeWidth)
-        );
-
-        axisStrokeWidth = attributes.getDimensionPixelSize(
-                R.styleable.PrimaryChartView_axisLineWidth,
-                resources.getDimensionPixelSize(R.dimen.chartViewDefaultAxisStrokeWidth)
-        );
-
-        attributes.recycle();
-    }
-
-    private void init() {
-        backgroundDrawDelegate = new BackgroundDrawDelegate(getResources());
-        verticalAxisDrawDelegate = new VerticalAxisDrawDelegate(
-                getResources(),
-                axisStrokeWidth,
-                axisTextSize,
-                BOTTOM_AXIS_MARGIN_PX,
-                TOP_AXIS_MARGIN_PX,
-                new RedrawCallback() {
-                    @Override
-                    public void onRedrawRequired() {
-                        invalidate();
-                    }
-                }
-        );
-
-        horizontalLabelsDrawDelegate = new HorizontalLabelsDrawDelegate(
-                getResources(),
-                axisTextSize,
-                axisStrokeWidth,
+    private void init(AttributeSet attributeSet) {
+        renderer = new PrimaryChartRenderer(
+                getContext(),
+                attributeSet,
                 new RedrawCallback() {
                     @Override
                     public void onRedrawRequired() {
@@ -108,31 +78,6 @@ public class PrimaryChartView extends View {
                     }
                 }
         );
-
-        chartDrawDelegate = new ChartDrawDelegate(
-                lineStrokeWidth,
-                BOTTOM_AXIS_MARGIN_PX,
-                TOP_AXIS_MARGIN_PX,
-                new RedrawCallback() {
-                    @Override
-                    public void onRedrawRequired() {
-                        invalidate();
-                    }
-                },
-                new ChartDrawDelegate.MaxVisibleValueListener() {
-                    @Override
-                    public void onMaxVisibleValueChanged(int previousMaxValue, int newMaxValue) {
-                        verticalAxisDrawDelegate.onLinesVisibilityUpdated(
-                                chartDrawDelegate.areLinesVisible(),
-                                newMaxValue
-                        );
-
-                        verticalAxisDrawDelegate.animateVerticalAxis(
-                                previousMaxValue != 0 && newMaxValue < previousMaxValue
-                        );
-                    }
-                }
-        );
     }
 
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
@@ -148,125 +93,140 @@ public class PrimaryChartView extends View {
     public void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
 
-        float height = bottom - top;
-        float width = right - left;
+        renderer.beginSection(ChartMetrics.SECTION_LAYOUT);
+        renderer.setSize(right - left, bottom - top);
+        renderer.endSection(ChartMetrics.SECTION_LAYOUT);
+    }
 
-        backgroundDrawDelegate.setCanvasSize(width, height);
-        verticalAxisDrawDelegate.setCanvasSize(width, height);
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
 
-        horizontalLabelsDrawDelegate.onHeightChanged(height);
-        chartDrawDelegate.onHeightChanged(height);
+        if (rangeUpdatePending) {
+            Choreographer.getInstance().removeFrameCallback(rangeUpdateCallback);
+            applyPendingRangeUpdate();
+        }
 
-        updateDrawingParams();
+        renderer.finishAnimations();
+        renderer.releaseLayers();
     }
 
     public void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        backgroundDrawDelegate.drawBackground(canvas);
-        verticalAxisDrawDelegate.drawVerticalAxis(canvas);
-        chartDrawDelegate.drawChart(canvas);
-        chartDrawDelegate.drawSelectedPoints(
-                canvas,
-                verticalAxisDrawDelegate.getVerticalAxisPaint(),
-                backgroundDrawDelegate.getBackgroundPaint()
-        );
-        verticalAxisDrawDelegate.drawVerticalLabels(canvas);
-        horizontalLabelsDrawDelegate.drawHorizontalLabels(canvas);
-    }
+        renderer.draw(canvas);
 
-    public void setOnChartClickedListener(OnChartClickedListener listener) {
-        setOnTouchListener(
-                new PrimaryChartOnTouchListener(
-                        horizontalLabelsDrawDelegate,
-                        chartDrawDelegate,
-                        listener
-                )
-        );
+        if (metrics != null) {
+            metrics.onFrameDrawn(getDrawingTime());
+        }
     }
 
-    private void initVariablesForHorizontalChartDrawing(float width) {
-        double visibleWidth = width * (endPercent - startPercent);
+    @Override
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = metrics;
 
-        int firstDateIndex = 0;
-        int lastDateIndex = chart.getAbscissa().size() - 1;
+        renderer.setMetrics(metrics);
+    }
 
-        float xStep = width / lastDateIndex;
-        xStep *= (width / visibleWidth);
+    @Override
+    public void releaseLayers() {
+        renderer.releaseLayers();
+    }
 
-        float enlargedWidth = (float) (width * width / visibleWidth);
+    @Override
+    public void setOnChartClickedListener(OnChartClickedListener listener) {
+        setOnTouchListener(new PrimaryChartOnTouchListener(
+                touchTarget,
+                listener,
+                ViewConfiguration.get(getContext()).getScaledTouchSlop()
+        ));
+    }
 
-        float x0 = (float) (-enlargedWidth * startPercent);
+    @Override
+    public void onVisibleRangeChanged(double startVisiblePercent, double endVisiblePercent) {
+        renderer.setVisibleRange(startVisiblePercent, endVisiblePercent);
 
-        int firstVisiblePointIndex = (int) Math.floor(-x0 / xStep);
+        scheduleRangeUpdate();
+    }
 
-        if (firstVisiblePointIndex < firstDateIndex) {
-            firstVisiblePointIndex = firstDateIndex;
-        }
+    // points were appended to a live chart, the scale and the max are recalculated once per frame
+    @Override
+    public void onPointsAppended(int appendedCount) {
+        renderer.onPointsAppended(appendedCount);
 
-        int lastVisiblePointIndex = (int) Math.ceil((width - x0) / xStep);
+        scheduleRangeUpdate();
+    }
 
-        if (lastVisiblePointIndex > lastDateIndex) {
-            lastVisiblePointIndex = lastDateIndex;
+    private void scheduleRangeUpdate() {
+        if (rangeUpdatePending) {
+            coalescedRangeUpdatesCount++;
+        } else {
+            rangeUpdatePending = true;
+            Choreographer.getInstance().postFrameCallback(rangeUpdateCallback);
         }
+    }
 
-        horizontalLabelsDrawDelegate.onDrawingParamsChanged(
-                lastDateIndex,
-                x0,
-                xStep,
-                firstVisiblePointIndex,
-                lastVisiblePointIndex
-        );
+    @Override
+    public void setVisibleRange(double startVisiblePercent, double endVisiblePercent) {
+        renderer.setVisibleRange(startVisiblePercent, endVisiblePercent);
+        renderer.updateDrawingParams();
 
-        chartDrawDelegate.onDrawingParamsChanged(
-                x0,
-                firstVisiblePointIndex,
-                xStep,
-                lastVisiblePointIndex
-        );
+        invalidate();
     }
 
-    private void updateDrawingParams() {
-        if (chart != null && getWidth() > 0 && getHeight() > 0) {
-            chartDrawDelegate.updateVerticalDrawingParams(startPercent, endPercent);
-            initVariablesForHorizontalChartDrawing(getWidth());
-            horizontalLabelsDrawDelegate.updatedHorizontalLabelsScale();
-        }
-    }
+    private void applyPendingRangeUpdate() {
+        rangeUpdatePending = false;
 
-    public void onVisibleRangeChanged(double startVisiblePercent, double endVisiblePercent) {
-        startPercent = startVisiblePercent;
-        endPercent = endVisiblePercent;
+        renderer.beginSection(ChartMetrics.SECTION_RANGE_UPDATE);
 
-        updateDrawingParams();
+        long startNanos = System.nanoTime();
+        renderer.updateDrawingParams();
+        lastRangeUpdateNanos = System.nanoTime() - startNanos;
 
-        invalidate();
+        renderer.endSection(ChartMetrics.SECTION_RANGE_UPDATE);
+    }
+
+    // time spent recomputing drawing params for the range applied in the latest frame
+    public long getLastRangeUpdateNanos() {
+        return lastRangeUpdateNanos;
     }
 
+    // ranges dropped because a newer one arrived within the same frame
+    public int getCoalescedRangeUpdatesCount() {
+        return coalescedRangeUpdatesCount;
+    }
+
+    @Override
     public void setChart(Chart chart) {
         this.chart = chart;
 
-        horizontalLabelsDrawDelegate.onChartInited(chart.getAbscissaAsString());
-        chartDrawDelegate.onChartInited(chart.getLineIds().size(), chart.getColors(), chart.getOrdinates());
-
-        updateDrawingParams();
+        renderer.setChart(chart);
 
         invalidate();
     }
 
+    @Override
     public void setLineVisibility(String lineId, boolean visible) {
-        final int lineIndex = chart.getLineIds().indexOf(lineId);
+        int lineIndex = chart.getLineIds().indexOf(lineId);
 
-        if (lineIndex != -1 && chartDrawDelegate.isLineVisible(lineIndex) != visible) {
-            chartDrawDelegate.setLineVisibility(lineIndex, visible);
-            chartDrawDelegate.updateVerticalDrawingParams(startPercent, endPercent);
+        if (lineIndex != -1) {
+            renderer.setLineVisibility(lineIndex, visible);
         }
     }
 
+    @Override
+    public void finishAnimations() {
+        renderer.finishAnimations();
+        invalidate();
+    }
+
+    // times the cached layers have been painted, stays constant while only the selection changes
+    public int getLayerPaintsCount() {
+        return renderer.getLayerPaintsCount();
+    }
+
+    @Override
     public void onNightModeChanged(boolean nightModeOn) {
-        backgroundDrawDelegate.onNightModeChanged(nightModeOn);
-        verticalAxisDrawDelegate.onNightModeChanged(nightModeOn);
-        horizontalLabelsDrawDelegate.onNightModeChanged(nightModeOn);
+        renderer.onNightModeChanged(nightModeOn);
 
         invalidate();
     }
@@ -0,0 +1,397 @@
+package ru.vmochalov.vkchart.chart.view.primary;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Surface;
+import android.view.TextureView;
+import android.view.ViewConfiguration;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.layout.TimeScale;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
+import ru.vmochalov.vkchart.chart.view.common.OnChartClickedListener;
+import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
+
+/**
+ * Draws the primary chart with the same renderer as PrimaryChartView, but on a render thread
+ * of its own, so the chart keeps animating while the main thread is busy. Touches and ChartView
+ * calls only change the params on the main thread; the render thread applies the latest of them
+ * before drawing. A chart must not change after it is set, so live charts are not drawn this way.
+ */
+public class RenderThreadPrimaryChartView extends TextureView implements PrimaryChart, TextureView.SurfaceTextureListener {
+
+    private static final String THREAD_NAME = "PrimaryChartRenderThread";
+
+    // main thread only
+    private ChartDrawParams params = new ChartDrawParams();
+    private ChartDrawParams spareParams = new ChartDrawParams();
+    private TimeScale touchTimeScale = new TimeScale();
+
+    // handed over between the threads under the lock
+    private final Object paramsLock = new Object();
+    private ChartDrawParams publishedParams = new ChartDrawParams();
+    private boolean paramsPublished;
+
+    // render thread only, one render thread after another
+    private PrimaryChartRenderer renderer;
+    private ChartDrawParams renderParams = new ChartDrawParams();
+    private ChartDrawParams appliedParams = new ChartDrawParams();
+    private boolean rendererInited;
+    private Surface surface;
+    private SurfaceTexture surfaceTexture;
+
+    // lives as long as the surface does; set on the main thread
+    private HandlerThread renderThread;
+    private volatile Handler renderHandler;
+    private AtomicBoolean drawPosted = new AtomicBoolean();
+
+    private Runnable drawRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drawPosted.set(false);
+
+            applyParams();
+            drawFrame();
+        }
+    };
+
+    private PrimaryChartOnTouchListener.Target touchTarget = new PrimaryChartOnTouchListener.Target() {
+        @Override
+        public int getClosestPointIndex(float x) {
+            if (params.chart == null || params.chart.getPointsCount() < 2 || params.width == 0) return 0;
+
+            // the same scale as the renderer's, from the params the main thread has set
+            touchTimeScale.set(params.chart, params.width, params.startPercent, params.endPercent);
+
+            return touchTimeScale.getClosestPointIndex(x);
+        }
+
+        @Override
+        public void setSelectedPointIndex(int selectedPointIndex) {
+            if (params.selectedPointIndex != selectedPointIndex) {
+                params.selectedPointIndex = selectedPointIndex;
+                publishParams();
+            }
+        }
+    };
+
+    public RenderThreadPrimaryChartView(Context context) {
+        super(context);
+
+        init(null);
+    }
+
+    public RenderThreadPrimaryChartView(Context context, AttributeSet attributeSet) {
+        super(context, attributeSet);
+
+        init(attributeSet);
+    }
+
+    public RenderThreadPrimaryChartView(Context context, AttributeSet attributeSet, int defStyleAttr) {
+        super(context, attributeSet, defStyleAttr);
+
+        init(attributeSet);
+    }
+
+    private void init(AttributeSet attributeSet) {
+        // created here, used on the render thread only from then on
+        renderer = new PrimaryChartRenderer(
+                getContext(),
+                attributeSet,
+                new RedrawCallback() {
+                    @Override
+                    public void onRedrawRequired() {
+                        postDraw();
+                    }
+                }
+        );
+
+        setSurfaceTextureListener(this);
+    }
+
+    public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int measuredWidth = MeasureSpec.getSize(widthMeasureSpec);
+        measuredWidth = Math.max(measuredWidth, getSuggestedMinimumWidth());
+
+        int measuredHeight = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY ? MeasureSpec.getSize(heightMeasureSpec) : (int) (measuredWidth * 0.85);
+        measuredHeight = Math.max(measuredHeight, getSuggestedMinimumHeight());
+
+        setMeasuredDimension(measuredWidth, measuredHeight);
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(final SurfaceTexture surfaceTexture, int width, int height) {
+        final HandlerThread previousRenderThread = renderThread;
+
+        renderThread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+        drawPosted.set(false);
+
+        // the first message of the thread, so nothing is drawn before the renderer is handed over
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                awaitRenderThread(previousRenderThread);
+
+                RenderThreadPrimaryChartView.this.surfaceTexture = surfaceTexture;
+                surface = new Surface(surfaceTexture);
+            }
+        });
+
+        onSizeChanged(width, height);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        onSizeChanged(width, height);
+    }
+
+    // the render thread may be drawing into it right now, so it is released there
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        renderHandler.removeCallbacks(drawRunnable);
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // the animations are driven by the Choreographer of the render thread, so they are stopped there
+                renderer.finishAnimations();
+                renderer.releaseLayers();
+                releaseSurface();
+            }
+        });
+
+        // the next render thread waits for this one to finish, so the renderer is never used by two of them
+        renderThread.quitSafely();
+        renderHandler = null;
+
+        return false;
+    }
+
+    // called on the new render thread, the previous one only has its release left to run,
+    // so the main thread never waits for it
+    private void awaitRenderThread(HandlerThread previousRenderThread) {
+        if (previousRenderThread == null) return;
+
+        try {
+            previousRenderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+        // nothing to do, frames come from the render thread
+    }
+
+    private void onSizeChanged(int width, int height) {
+        params.width = width;
+        params.height = height;
+
+        publishParams();
+    }
+
+    // the renderer measures its sections on the render thread, so its trace slices show up there
+    @Override
+    public void setMetrics(ChartMetrics metrics) {
+        params.metrics = metrics;
+
+        publishParams();
+    }
+
+    // without a render thread there is no surface and the layers are released already
+    @Override
+    public void releaseLayers() {
+        Handler handler = renderHandler;
+
+        if (handler != null) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    renderer.releaseLayers();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void setOnChartClickedListener(OnChartClickedListener listener) {
+        setOnTouchListener(new PrimaryChartOnTouchListener(
+                touchTarget,
+                listener,
+                ViewConfiguration.get(getContext()).getScaledTouchSlop()
+        ));
+    }
+
+    @Override
+    public void setChart(Chart chart) {
+        params.chart = chart;
+        params.chartGeneration++;
+        params.setLinesCount(chart.getLinesCount());
+        params.selectedPointIndex = -1;
+
+        publishParams();
+    }
+
+    @Override
+    public void setVisibleRange(double startVisiblePercent, double endVisiblePercent) {
+        params.startPercent = startVisiblePercent;
+        params.endPercent = endVisiblePercent;
+
+        publishParams();
+    }
+
+    // ranges are coalesced by the render thread, which applies only the latest one
+    @Override
+    public void onVisibleRangeChanged(double startVisiblePercent, double endVisiblePercent) {
+        setVisibleRange(startVisiblePercent, endVisiblePercent);
+    }
+
+    // live charts are drawn by PrimaryChartView, points of a static chart never change
+    @Override
+    public void onPointsAppended(int appendedCount) {
+    }
+
+    @Override
+    public void setLineVisibility(String lineId, boolean visible) {
+        int lineIndex = params.chart.getLineIds().indexOf(lineId);
+
+        if (lineIndex != -1 && params.lineVisibilities[lineIndex] != visible) {
+            params.lineVisibilities[lineIndex] = visible;
+
+            publishParams();
+        }
+    }
+
+    @Override
+    public void finishAnimations() {
+        params.finishAnimationsGeneration++;
+
+        publishParams();
+    }
+
+    @Override
+    public void onNightModeChanged(boolean nightModeOn) {
+        params.nightModeOn = nightModeOn;
+
+        publishParams();
+    }
+
+    // called on the main thread
+    private void publishParams() {
+        spareParams.set(params);
+
+        synchronized (paramsLock) {
+            ChartDrawParams published = publishedParams;
+            publishedParams = spareParams;
+            spareParams = published;
+            paramsPublished = true;
+        }
+
+        postDraw();
+    }
+
+    // called on either thread, several requests before the render thread gets to them draw once
+    private void postDraw() {
+        Handler handler = renderHandler;
+
+        if (handler != null && drawPosted.compareAndSet(false, true)) {
+            handler.post(drawRunnable);
+        }
+    }
+
+    // called on the render thread
+    private void applyParams() {
+        synchronized (paramsLock) {
+            if (!paramsPublished) return;
+
+            ChartDrawParams published = publishedParams;
+            publishedParams = renderParams;
+            renderParams = published;
+            paramsPublished = false;
+        }
+
+        ChartDrawParams params = renderParams;
+        ChartDrawParams applied = appliedParams;
+
+        if (params.nightModeOn != applied.nightModeOn || !rendererInited) {
+            renderer.onNightModeChanged(params.nightModeOn);
+        }
+
+        if (params.metrics != applied.metrics) {
+            renderer.setMetrics(params.metrics);
+        }
+
+        if (params.width != applied.width || params.height != applied.height) {
+            renderer.setSize(params.width, params.height);
+        }
+
+        if (params.chart == null) {
+            applied.set(params);
+            rendererInited = true;
+            return;
+        }
+
+        boolean chartChanged = params.chartGeneration != applied.chartGeneration;
+
+        if (chartChanged) {
+            renderer.setChart(params.chart);
+        }
+
+        for (int i = 0; i < params.chart.getLinesCount(); i++) {
+            renderer.setLineVisibility(i, params.lineVisibilities[i]);
+        }
+
+        if (chartChanged || params.startPercent != applied.startPercent || params.endPercent != applied.endPercent) {
+            renderer.setVisibleRange(params.startPercent, params.endPercent);
+            renderer.updateDrawingParams();
+        }
+
+        renderer.setSelectedPointIndex(params.selectedPointIndex);
+
+        if (params.finishAnimationsGeneration != applied.finishAnimationsGeneration) {
+            renderer.finishAnimations();
+        }
+
+        applied.set(params);
+        rendererInited = true;
+    }
+
+    // called on the render thread
+    private void drawFrame() {
+        if (surface == null || !surface.isValid()) return;
+
+        Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                ? surface.lockHardwareCanvas()
+                : surface.lockCanvas(null);
+
+        try {
+            renderer.draw(canvas);
+        } finally {
+            surface.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    // called on the render thread
+    private void releaseSurface() {
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+            surfaceTexture = null;
+        }
+    }
+
+}
@@ -1,20 +1,15 @@
 package ru.vmochalov.vkchart.chart.view.primary.delegates;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import ru.vmochalov.vkchart.R;
-import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
-
-import static ru.vmochalov.vkchart.utils.CalculationUtil.getPowOfTwo;
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.layout.LabelScale;
+import ru.vmochalov.vkchart.chart.layout.TimeScale;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
 
 /**
  * Created by Vladimir Mochalov on 19.01.2020.
@@ -23,15 +18,13 @@ public class HorizontalLabelsDrawDelegate {
 
     private final int AXES_TEXT_SIZE_PX = 20;
     private final int FIRST_DATE_INDEX = 0;
-    private final int LABELS_MAX_DISTANCE_LIMIT_PX = 200;
+    private final int LABELS_MIN_DISTANCE_PX = 30;
+    private final int LABELS_ANIMATION_DURATION = 200;
 
     private Resources resources;
 
-    private boolean labelsAlphaAnimationInProgress;
-    private float horizontalLabelsAlpha = 1;
-
-    private float x0;
-    private float xStep;
+    // shared with the view, set before every onDrawingParamsChanged
+    private TimeScale timeScale;
 
     private int lastDateIndex;
     private int firstVisiblePointIndex;
@@ -39,24 +32,29 @@ public class HorizontalLabelsDrawDelegate {
 
     private float horizontalLabelY;
 
+    // masks of LabelScale, applied to array indexes
+    private boolean labelsScaleInited;
     private int currentLabelsScale;
+    private int currentLabelsMask;
+    private int previousLabelsScale;
+    private int previousLabelsMask;
 
-    private boolean[] labelsVisibility;
-
-    private List<String> chartAbscissaLabels;
+    private Chart chart;
 
-    private List<Integer> fadePointIndexes = new ArrayList<>();
+    // measured once per chart, the text size does not change afterwards
+    private float[] labelWidths = new float[0];
+    private float maxLabelWidth;
 
-    private ValueAnimator horizontalLabelsAnimator = null;
-
-    private RedrawCallback redrawCallback;
+    private AnimationClock animationClock;
+    private int labelsAlphaSlot;
 
     private Paint labelPaint = new Paint();
     private Paint labelPaintAnimation = new Paint();
 
-    public HorizontalLabelsDrawDelegate(Resources resources, float axisTextSize, float axisStrokeWidth, RedrawCallback redrawCallback) {
+    public HorizontalLabelsDrawDelegate(Resources resources, float axisTextSize, float axisStrokeWidth, AnimationClock animationClock) {
         this.resources = resources;
-        this.redrawCallback = redrawCallback;
+        this.animationClock = animationClock;
+        this.labelsAlphaSlot = animationClock.obtainSlot(1);
 
         labelPaint.setTextAlign(Paint.Align.CENTER);
         labelPaint.setColor(resources.getColor(R.color.lightThemeLabelText));
@@ -74,17 +72,43 @@ public class HorizontalLabelsDrawDelegate {
 
     }
 
-    public void onChartInited(List<String> labels) {
-        chartAbscissaLabels = labels;
-        labelsVisibility = new boolean[labels.size()];
+    public void onChartInited(Chart chart) {
+        this.chart = chart;
+        labelsScaleInited = false;
+        animationClock.setValue(labelsAlphaSlot, 1);
+
+        measureLabels();
+    }
+
+    private void measureLabels() {
+        int pointsCount = chart.getPointsCount();
+
+        if (labelWidths.length < pointsCount) {
+            labelWidths = new float[pointsCount];
+        }
+
+        maxLabelWidth = 0;
+
+        for (int i = 0; i < pointsCount; i++) {
+            labelWidths[i] = labelPaint.measureText(chart.getAbscissaLabel(i));
+            maxLabelWidth = Math.max(maxLabelWidth, labelWidths[i]);
+        }
+    }
+
+    // labels of appended points can only widen the maximum, the table covers the initial points
+    public void onPointsAppended(int appendedCount) {
+        int pointsCount = chart.getPointsCount();
+
+        for (int i = Math.max(pointsCount - appendedCount, 0); i < pointsCount; i++) {
+            maxLabelWidth = Math.max(maxLabelWidth, labelPaint.measureText(chart.getAbscissaLabel(i)));
+        }
     }
 
-    public void onDrawingParamsChanged(int lastDateIndex, float x0, float xStep, int firstVisiblePointIndex, int lastVisiblePointIndex) {
-        this.lastDateIndex = lastDateIndex;
-        this.x0 = x0;
-        this.xStep = xStep;
-        this.firstVisiblePointIndex = firstVisiblePointIndex;
-        this.lastVisiblePointIndex = lastVisiblePointIndex;
+    public void onDrawingParamsChanged(TimeScale timeScale) {
+        this.timeScale = timeScale;
+        this.lastDateIndex = chart.getPointsCount() - 1;
+        this.firstVisiblePointIndex = timeScale.getFirstVisiblePointIndex();
+        this.lastVisiblePointIndex = timeScale.getLastVisiblePointIndex();
     }
 
     public void onNightModeChanged(boolean nightModeOn) {
@@ -99,7 +123,8 @@ public class HorizontalLabelsDrawDelegate {
 
     public void drawHorizontalLabels(Canvas canvas) {
 
-        boolean animationInProgress = labelsAlphaAnimationInProgress;
+        boolean animationInProgress = animationClock.isRunning(labelsAlphaSlot);
+        float horizontalLabelsAlpha = animationClock.getValue(labelsAlphaSlot);
 
         if (animationInProgress) {
             int color = Color.argb(
@@ -110,166 +135,75 @@ public class HorizontalLabelsDrawDelegate {
             );
 
             labelPaintAnimation.setColor(color);
-
-            for (int i : fadePointIndexes) {
-                if (isPointIndexValid(i) && i != FIRST_DATE_INDEX && i != lastDateIndex) {
-                    canvas.drawText(
-                            chartAbscissaLabels.get(i),
-                            x0 + xStep * i,
-                            horizontalLabelY,
-                            labelPaintAnimation
-                    );
-                }
-            }
-        }
-
-        for (int i = firstVisiblePointIndex; i <= lastVisiblePointIndex; i++) {
-            if (labelsVisibility[i] && i != FIRST_DATE_INDEX && i != lastDateIndex) {
-                if (!animationInProgress || !fadePointIndexes.contains(i)) {
-                    canvas.drawText(
-                            chartAbscissaLabels.get(i),
-                            x0 + xStep * i,
-                            horizontalLabelY,
-                            labelPaint
-                    );
-                }
-            }
-        }
-    }
-
-    public void updatedHorizontalLabelsScale() {
-        int newScale = getInitialScale();
-
-        if (newScale != currentLabelsScale) {
-            if (newScale < currentLabelsScale) {
-                animateHorizontalLabels(true);
-            } else {
-                animateHorizontalLabels(false);
-            }
-
-            currentLabelsScale = newScale;
-
-            setScaleForHorizontalLabels(newScale);
         }
-    }
 
-    private void animateHorizontalLabels(boolean appear) {
-        if (horizontalLabelsAnimator != null) {
-            horizontalLabelsAnimator.end();
-        }
+        // the first and the last dates are never labeled
+        int fromIndex = Math.max(firstVisiblePointIndex, FIRST_DATE_INDEX + 1);
+        int toIndex = Math.min(lastVisiblePointIndex, lastDateIndex - 1);
 
-        horizontalLabelsAnimator = ValueAnimator.ofFloat(appear ? 0.0f : 1.0f, appear ? 1.0f : 0.0f);
+        int pointsOffset = chart.getPointsOffset();
 
-        horizontalLabelsAnimator.setDuration(200);
-        horizontalLabelsAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                horizontalLabelsAlpha = (float) animation.getAnimatedValue();
+        boolean visible;
+        boolean fading;
+        float x;
+        // the scale keeps evenly spaced labels apart, irregular points may still bring two of them together
+        float previousLabelEnd = Float.NEGATIVE_INFINITY;
 
-                redrawCallback.onRedrawRequired();
-            }
-        });
-        horizontalLabelsAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
+        for (int i = fromIndex; i <= toIndex; i++) {
+            visible = LabelScale.isVisible(pointsOffset + i, currentLabelsMask);
+            fading = animationInProgress && visible != LabelScale.isVisible(pointsOffset + i, previousLabelsMask);
 
-                labelsAlphaAnimationInProgress = false;
-            }
+            if (fading || visible) {
+                x = timeScale.getX(i);
 
-            @Override
-            public void onAnimationStart(Animator animation) {
-                super.onAnimationStart(animation);
+                if (x - maxLabelWidth / 2 < previousLabelEnd) continue;
 
-                labelsAlphaAnimationInProgress = true;
-            }
-        });
-        horizontalLabelsAnimator.start();
-    }
+                canvas.drawText(
+                        chart.getAbscissaLabel(i),
+                        x,
+                        horizontalLabelY,
+                        fading ? labelPaintAnimation : labelPaint
+                );
 
-    // 0 - all are visible, 1 - every second, 3 - every 4th, 4 - every 8th and so on
-    private void setScaleForHorizontalLabels(int scale) {
-        fadePointIndexes.clear();
-
-        int indexToMakeVisible = getPowOfTwo(scale);
-        boolean newVisibility;
-
-        for (int i = 0; i < labelsVisibility.length; i++) {
-            newVisibility = (i % indexToMakeVisible == 0);
-            if (labelsVisibility[i] != newVisibility) {
-                labelsVisibility[i] = newVisibility;
-                fadePointIndexes.add(i);
+                previousLabelEnd = x + maxLabelWidth / 2 + LABELS_MIN_DISTANCE_PX;
             }
         }
     }
 
-    private int getInitialScale() {
-        // Find out, if two points overlap. If not, then this is the preffered scale.
-        int scale = 0;
-
-        int firstPointIndex = 0;
-        int lastPointIndex = 0;
-
-        while (lastPointIndex < labelsVisibility.length && areNeightborPointsTooClose(firstPointIndex, lastPointIndex)) {
-            scale++;
-            lastPointIndex = getPowOfTwo(scale);
-        }
+    public void updatedHorizontalLabelsScale() {
+        int newScale = LabelScale.getScale(maxLabelWidth, LABELS_MIN_DISTANCE_PX, timeScale.getPointWidth(), chart.getPointsCount());
 
-        while (lastPointIndex < labelsVisibility.length && areNeighbourPointsTooFar(firstPointIndex, lastPointIndex)) {
-            scale--;
-            lastPointIndex = getPowOfTwo(scale);
+        if (!labelsScaleInited) {
+            labelsScaleInited = true;
+            setScaleForHorizontalLabels(newScale);
+            previousLabelsMask = currentLabelsMask;
+        } else if (newScale != currentLabelsScale) {
+            setScaleForHorizontalLabels(newScale);
+            animateHorizontalLabels(newScale < previousLabelsScale);
         }
-
-        return scale;
     }
 
-    private boolean areNeightborPointsTooClose(int firstPointIndex, int secondPointIndex) {
-        if (isPointIndexValid(firstPointIndex) && isPointIndexValid(secondPointIndex)) {
-
-            String labelOne = chartAbscissaLabels.get(firstPointIndex);
-            float labelOneWidth = labelPaint.measureText(labelOne);
-            float labelOneStartX = x0 + xStep * firstPointIndex - labelOneWidth / 2;
-            float labelOneEndX = labelOneStartX + labelOneWidth;
-
-            String labelTwo = chartAbscissaLabels.get(secondPointIndex);
-            float labelTwoWidth = labelPaint.measureText(labelTwo);
-            float labelTwoStartX = x0 + xStep * secondPointIndex - labelTwoWidth / 2;
-
-            return labelOneEndX - labelTwoStartX > -30;
-
-        } else {
-            return false;
-        }
+    private void animateHorizontalLabels(boolean appear) {
+        animationClock.animate(labelsAlphaSlot, appear ? 0.0f : 1.0f, appear ? 1.0f : 0.0f, LABELS_ANIMATION_DURATION);
     }
 
-    private boolean areNeighbourPointsTooFar(int firstPointIndex, int secondPointIndex) {
-        if (isPointIndexValid(firstPointIndex) && isPointIndexValid(secondPointIndex)) {
-
-            String labelOne = chartAbscissaLabels.get(firstPointIndex);
-            float labelOneWidth = labelPaint.measureText(labelOne);
-            float labelOneStartX = x0 + xStep * firstPointIndex - labelOneWidth / 2;
-            float labelOneEndX = labelOneStartX + labelOneWidth;
-
-            String labelTwo = chartAbscissaLabels.get(secondPointIndex);
-            float labelTwoWidth = labelPaint.measureText(labelTwo);
-            float labelTwoStartX = x0 + xStep * secondPointIndex - labelTwoWidth / 2;
-
-            return labelTwoStartX - labelOneEndX > LABELS_MAX_DISTANCE_LIMIT_PX;
+    // labels which differ between the previous and the current scale are the fading ones
+    private void setScaleForHorizontalLabels(int scale) {
+        previousLabelsScale = currentLabelsScale;
+        previousLabelsMask = currentLabelsMask;
 
-        } else {
-            return false;
-        }
+        currentLabelsScale = scale;
+        currentLabelsMask = LabelScale.getMask(scale);
     }
 
-    private boolean isPointIndexValid(int index) {
-        return index >= FIRST_DATE_INDEX && index <= lastDateIndex;
+    public boolean isAnimating() {
+        return animationClock.isRunning(labelsAlphaSlot);
     }
 
     public int getClosestPointIndex(float x) {
-        int result = Math.round((x - x0) / xStep);
-        if (result < FIRST_DATE_INDEX) result = FIRST_DATE_INDEX;
-        if (result > lastDateIndex) result = lastDateIndex;
-        return result;
+        if (timeScale == null) return FIRST_DATE_INDEX;
+
+        return timeScale.getClosestPointIndex(x);
     }
 
 }
@@ -0,0 +1,203 @@
+package ru.vmochalov.vkchart.chart.view.primary.delegates;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import ru.vmochalov.vkchart.R;
+import ru.vmochalov.vkchart.chart.data.Chart;
+
+import static ru.vmochalov.vkchart.utils.CalculationUtil.formatInt;
+
+/**
+ * The card with the date and the values of the selected point, drawn next to the touch.
+ * Values are formatted and the card is measured only when the selected point changes,
+ * so scrubbing across the chart formats nothing and never requests a layout.
+ */
+public class SelectedPointInfoDrawDelegate {
+
+    private static final int HORIZONTAL_MARGIN_PX = 10;
+    private static final int COLUMN_MARGIN_PX = 16;
+    private static final int MAX_VALUE_LENGTH = 11; // sign and 10 digits of an int
+
+    private Resources resources;
+
+    private Chart chart;
+    private int linesCount;
+    private boolean[] lineVisibilities = new boolean[0];
+
+    private int selectedPointIndex = -1;
+    // the card is measured again with the next draw
+    private boolean measured;
+
+    private String dateLabel;
+    private char[][] valueLabels = new char[0][];
+    private int[] valueLabelLengths = new int[0];
+    // measured once per chart
+    private float[] nameWidths = new float[0];
+    private float[] columnWidths = new float[0];
+
+    private float cardWidth;
+    private float cardHeight;
+    private RectF cardRect = new RectF();
+
+    private float paddingHorizontal;
+    private float paddingVertical;
+    private float marginTop;
+    private float cornerRadius;
+
+    private Paint backgroundPaint = new Paint();
+    private Paint borderPaint = new Paint();
+    private Paint datePaint = new Paint();
+    private Paint valuePaint = new Paint();
+    private Paint namePaint = new Paint();
+
+    public SelectedPointInfoDrawDelegate(Resources resources) {
+        this.resources = resources;
+
+        paddingHorizontal = resources.getDimensionPixelSize(R.dimen.selectedPointInfoPaddingHorizontal);
+        paddingVertical = resources.getDimensionPixelSize(R.dimen.selectedPointInfoPaddingVertical);
+        marginTop = resources.getDimensionPixelSize(R.dimen.selectedPointInfoMarginTop);
+        cornerRadius = resources.getDimensionPixelSize(R.dimen.selectedPointInfoCornerRadius);
+
+        backgroundPaint.setStyle(Paint.Style.FILL);
+        backgroundPaint.setAntiAlias(true);
+
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setStrokeWidth(resources.getDimensionPixelSize(R.dimen.chartViewDefaultAxisStrokeWidth));
+        borderPaint.setAntiAlias(true);
+
+        datePaint.setTextAlign(Paint.Align.CENTER);
+        datePaint.setTextSize(resources.getDimensionPixelSize(R.dimen.selectedPointInfoTextSize));
+        datePaint.setAntiAlias(true);
+
+        valuePaint.setTextAlign(Paint.Align.LEFT);
+        valuePaint.setTextSize(resources.getDimensionPixelSize(R.dimen.selectedPointInfoValueTextSize));
+        valuePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        valuePaint.setAntiAlias(true);
+
+        namePaint.setTextAlign(Paint.Align.LEFT);
+        namePaint.setTextSize(resources.getDimensionPixelSize(R.dimen.selectedPointInfoTextSize));
+        namePaint.setAntiAlias(true);
+
+        onNightModeChanged(false);
+    }
+
+    public void onChartInited(Chart chart) {
+        this.chart = chart;
+        this.linesCount = chart.getLinesCount();
+
+        // buffers are reused when the view is bound to another chart
+        if (lineVisibilities.length < linesCount) {
+            lineVisibilities = new boolean[linesCount];
+            valueLabels = new char[linesCount][MAX_VALUE_LENGTH];
+            valueLabelLengths = new int[linesCount];
+            nameWidths = new float[linesCount];
+            columnWidths = new float[linesCount];
+        }
+
+        for (int i = 0; i < linesCount; i++) {
+            lineVisibilities[i] = true;
+            nameWidths[i] = namePaint.measureText(chart.getLineIds().get(i));
+        }
+
+        selectedPointIndex = -1;
+        measured = false;
+    }
+
+    public void setSelectedPointIndex(int selectedPointIndex) {
+        if (this.selectedPointIndex != selectedPointIndex) {
+            this.selectedPointIndex = selectedPointIndex;
+            measured = false;
+        }
+    }
+
+    public void setLineVisibility(int lineIndex, boolean visible) {
+        lineVisibilities[lineIndex] = visible;
+        measured = false;
+    }
+
+    public void onNightModeChanged(boolean nightModeOn) {
+        backgroundPaint.setColor(resources.getColor(nightModeOn ? R.color.darkThemeChartBackground : R.color.lightThemeChartBackground));
+        borderPaint.setColor(resources.getColor(nightModeOn ? R.color.darkThemeAxis : R.color.lightThemeAxis));
+        datePaint.setColor(resources.getColor(nightModeOn ? android.R.color.white : android.R.color.black));
+    }
+
+    private boolean areLinesVisible() {
+        for (int i = 0; i < linesCount; i++) {
+            if (lineVisibilities[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void measure() {
+        dateLabel = chart.getAbscissaLabel(selectedPointIndex);
+
+        float columnsWidth = 0;
+
+        for (int i = 0; i < linesCount; i++) {
+            if (!lineVisibilities[i]) continue;
+
+            valueLabelLengths[i] = formatInt(chart.getValue(i, selectedPointIndex), valueLabels[i]);
+
+            float valueWidth = valuePaint.measureText(valueLabels[i], 0, valueLabelLengths[i]);
+            columnWidths[i] = Math.max(valueWidth, nameWidths[i]) + COLUMN_MARGIN_PX;
+            columnsWidth += columnWidths[i];
+        }
+
+        cardWidth = Math.max(datePaint.measureText(dateLabel), columnsWidth) + 2 * paddingHorizontal;
+        cardHeight = getLineHeight(datePaint) + getLineHeight(valuePaint) + getLineHeight(namePaint) + 2 * paddingVertical;
+
+        measured = true;
+    }
+
+    private float getLineHeight(Paint paint) {
+        return paint.descent() - paint.ascent();
+    }
+
+    // selectedPointX is where the selected point is drawn, the card keeps within the chart width
+    public void drawSelectedPointInfo(Canvas canvas, float selectedPointX, float chartWidth) {
+        if (chart == null || selectedPointIndex < 0 || selectedPointIndex >= chart.getPointsCount() || !areLinesVisible()) {
+            return;
+        }
+
+        if (!measured) {
+            measure();
+        }
+
+        float left = selectedPointX + cardWidth / 2 + HORIZONTAL_MARGIN_PX;
+
+        if (left + cardWidth + HORIZONTAL_MARGIN_PX > chartWidth) {
+            left = chartWidth - cardWidth - HORIZONTAL_MARGIN_PX;
+        }
+
+        cardRect.set(left, marginTop, left + cardWidth, marginTop + cardHeight);
+
+        canvas.drawRoundRect(cardRect, cornerRadius, cornerRadius, backgroundPaint);
+        canvas.drawRoundRect(cardRect, cornerRadius, cornerRadius, borderPaint);
+
+        float dateBaseline = cardRect.top + paddingVertical - datePaint.ascent();
+        canvas.drawText(dateLabel, cardRect.centerX(), dateBaseline, datePaint);
+
+        float valueBaseline = dateBaseline + datePaint.descent() - valuePaint.ascent();
+        float nameBaseline = valueBaseline + valuePaint.descent() - namePaint.ascent();
+        float x = left + paddingHorizontal;
+
+        for (int i = 0; i < linesCount; i++) {
+            if (!lineVisibilities[i]) continue;
+
+            valuePaint.setColor(chart.getColor(i));
+            namePaint.setColor(chart.getColor(i));
+
+            canvas.drawText(valueLabels[i], 0, valueLabelLengths[i], x, valueBaseline, valuePaint);
+            canvas.drawText(chart.getLineIds().get(i), x, nameBaseline, namePaint);
+
+            x += columnWidths[i];
+        }
+    }
+
+}
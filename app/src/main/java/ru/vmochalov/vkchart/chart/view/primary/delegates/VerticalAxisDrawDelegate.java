@@ -1,33 +1,36 @@
 package ru.vmochalov.vkchart.chart.view.primary.delegates;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 
 import ru.vmochalov.vkchart.R;
-import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
+
+import static ru.vmochalov.vkchart.utils.CalculationUtil.formatInt;
 
 /**
  * Created by Vladimir Mochalov on 18.01.2020.
  */
 public class VerticalAxisDrawDelegate {
 
+    // labels of the scale shared by all the lines, or of the first line of a y scaled chart
+    public static final int SIDE_LEFT = 0;
+    // labels of the second line of a y scaled chart
+    public static final int SIDE_RIGHT = 1;
+
     private final int AXIS_TEXT_MARGIN_PX = 12;
     private final int AXIS_LEVELS_COUNT = 6;
     private final int ANIMATION_DURATION = 500;
+    private final int MAX_LABEL_LENGTH = 11; // sign and 10 digits of an int
 
     private Resources resources;
 
     private float[] verticalAxesLinesCoords = new float[AXIS_LEVELS_COUNT * 4];
     private float[] firstVerticalLineAnimationCoords = new float[4];
 
-    private String[] verticalLevelValuesAsStrings = new String[AXIS_LEVELS_COUNT];
-    private String[] oldVerticalLevelValuesAsStrings = new String[AXIS_LEVELS_COUNT];
-
     private int bottomAxisMargin;
     private int topAxisMargin;
 
@@ -39,13 +42,15 @@ public class VerticalAxisDrawDelegate {
     private Paint verticalAxisPaint = new Paint();
     private Paint verticalAnimatedAxisPaint = new Paint();
 
-    private Paint verticalLabelsPaint = new Paint();
-    private Paint verticalAnimatedLabelsPaint = new Paint();
+    private int labelsColor;
 
-    private ValueAnimator verticalAxisValueAnimator;
-    private boolean axisAnimationDirectionAppearFromBottom;
-    private float axisAnimationFraction;
+    private AnimationClock animationClock;
 
+    // the grid moves along with the left labels
+    private LabelsColumn leftLabels;
+    private LabelsColumn rightLabels;
+
+    private boolean yScaled;
 
     public VerticalAxisDrawDelegate(
             Resources resources,
@@ -53,7 +58,7 @@ public class VerticalAxisDrawDelegate {
             float axisTextSize,
             int bottomAxisMargin,
             int topAxisMargin,
-            final RedrawCallback callback
+            AnimationClock animationClock
     ) {
         this.resources = resources;
 
@@ -69,37 +74,12 @@ public class VerticalAxisDrawDelegate {
         verticalAnimatedAxisPaint.setAntiAlias(true);
         verticalAnimatedAxisPaint.setStyle(Paint.Style.FILL_AND_STROKE);
 
-        verticalLabelsPaint.setColor(resources.getColor(R.color.lightThemeLabelText));
-        verticalLabelsPaint.setTextSize(axisTextSize);
-        verticalLabelsPaint.setStrokeWidth(axisStrokeWidth);
-        verticalLabelsPaint.setTextAlign(Paint.Align.LEFT);
-        verticalLabelsPaint.setAntiAlias(true);
-        verticalLabelsPaint.setStyle(Paint.Style.FILL);
-
-        verticalAnimatedLabelsPaint.setTextSize(axisTextSize);
-        verticalAnimatedLabelsPaint.setStrokeWidth(axisStrokeWidth);
-        verticalAnimatedLabelsPaint.setTextAlign(Paint.Align.LEFT);
-        verticalAnimatedLabelsPaint.setAntiAlias(true);
-        verticalAnimatedLabelsPaint.setStyle(Paint.Style.FILL);
-
-        verticalAxisValueAnimator = ValueAnimator.ofFloat(1.0f, 0.0f);
-        verticalAxisValueAnimator.setDuration(ANIMATION_DURATION);
-        verticalAxisValueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                axisAnimationFraction = (float) animation.getAnimatedValue();
-                callback.onRedrawRequired();
-            }
-        });
+        labelsColor = resources.getColor(R.color.lightThemeLabelText);
 
-        verticalAxisValueAnimator.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                oldVerticalLevelValuesAsStrings = verticalLevelValuesAsStrings.clone();
+        this.animationClock = animationClock;
 
-                callback.onRedrawRequired();
-            }
-        });
+        leftLabels = new LabelsColumn(false, axisStrokeWidth, axisTextSize);
+        rightLabels = new LabelsColumn(true, axisStrokeWidth, axisTextSize);
     }
 
     public void setCanvasSize(float width, float height) {
@@ -113,12 +93,25 @@ public class VerticalAxisDrawDelegate {
         yDelta = (height - bottomAxisMargin - topAxisMargin) / AXIS_LEVELS_COUNT;
     }
 
+    // the labels of a y scaled chart are of the colors of their lines, the right ones are shown for y scaled charts only
+    public void onChartInited(Chart chart) {
+        yScaled = chart.isYScaled();
+
+        leftLabels.setLineColor(yScaled && chart.getLinesCount() > 0 ? chart.getColor(0) : 0);
+        rightLabels.setLineColor(yScaled && chart.getLinesCount() > 1 ? chart.getColor(1) : 0);
+
+        leftLabels.visible = true;
+        rightLabels.visible = false;
+    }
+
     public void drawVerticalAxis(Canvas canvas) {
+        float axisAnimationFraction = animationClock.getValue(leftLabels.animationSlot);
+
         boolean isAnimationHappening = axisAnimationFraction != 0.0f && axisAnimationFraction != 1.0f;
 
         if (isAnimationHappening) {
-            drawVerticalAxisAnimated(canvas, axisAnimationFraction, axisAnimationDirectionAppearFromBottom, true);
-            drawVerticalAxisAnimated(canvas, axisAnimationFraction, !axisAnimationDirectionAppearFromBottom, false);
+            drawVerticalAxisAnimated(canvas, axisAnimationFraction, leftLabels.appearFromBottom, true);
+            drawVerticalAxisAnimated(canvas, axisAnimationFraction, !leftLabels.appearFromBottom, false);
         } else {
             float verticalYAxisCoord;
 
@@ -173,86 +166,184 @@ public class VerticalAxisDrawDelegate {
     }
 
     public void drawVerticalLabels(Canvas canvas) {
-        boolean animationIsHappening = axisAnimationFraction != 0.0f && axisAnimationFraction != 1.0f;
+        leftLabels.draw(canvas);
+        rightLabels.draw(canvas);
+    }
 
-        if (animationIsHappening) {
-            drawVerticalLabelsAnimated(canvas, axisAnimationFraction, axisAnimationDirectionAppearFromBottom, true);
-            drawVerticalLabelsAnimated(canvas, axisAnimationFraction, !axisAnimationDirectionAppearFromBottom, false);
-        } else {
-            for (int i = 0; i < AXIS_LEVELS_COUNT; i++) {
-                float verticalYAxisCoord = height - bottomAxisMargin - i * yDelta;
-                canvas.drawText(oldVerticalLevelValuesAsStrings[i], 0, verticalYAxisCoord - AXIS_TEXT_MARGIN_PX, verticalLabelsPaint);
-            }
-        }
+    // the labels of a side go from the min to the max of its scale, they are drawn only while its lines are visible
+    public void onLinesVisibilityUpdated(int side, boolean areLinesVisible, int newMinVisibleValue, int newMaxVisibleValue) {
+        LabelsColumn labels = side == SIDE_LEFT ? leftLabels : rightLabels;
+
+        // the shared scale keeps its labels when every line is hidden
+        labels.visible = areLinesVisible || !yScaled && side == SIDE_LEFT;
+        labels.setRange(areLinesVisible, newMinVisibleValue, newMaxVisibleValue);
     }
 
-    private void drawVerticalLabelsAnimated(Canvas canvas, float fraction, boolean appearFromBottom, boolean appearing) {
-        int alpha = appearing ? Math.min((int) (0xff * ((1 - fraction) * (1 - fraction))), 0xff) : Math.min((int) (0xff * (fraction * fraction)), 0xff);
+    public void onNightModeChanged(boolean nightModeOn) {
+        int verticalAxisColor = resources.getColor(nightModeOn ? R.color.darkThemeAxis : R.color.lightThemeAxis);
+        labelsColor = resources.getColor(nightModeOn ? R.color.darkThemeLabelText : R.color.lightThemeLabelText);
 
-        int color = Color.argb(alpha,
-                Color.red(verticalLabelsPaint.getColor()),
-                Color.green(verticalLabelsPaint.getColor()),
-                Color.blue(verticalLabelsPaint.getColor())
-        );
+        verticalAxisPaint.setColor(verticalAxisColor);
+        leftLabels.updateColor();
+        rightLabels.updateColor();
+    }
 
-        verticalAnimatedLabelsPaint.setColor(color);
+    public boolean isAnimating() {
+        return animationClock.isRunning(leftLabels.animationSlot) || animationClock.isRunning(rightLabels.animationSlot);
+    }
 
-        float animationFraction = appearing ? (1 - fraction) : fraction;
+    public Paint getVerticalAxisPaint() {
+        return verticalAxisPaint;
+    }
 
-        String[] labelsToUse = appearing ? verticalLevelValuesAsStrings : oldVerticalLevelValuesAsStrings;
+    // every side has an animation of its own, so the scales of a y scaled chart change independently
+    public void animateVerticalAxis(int side, boolean rangeDecreased) {
+        LabelsColumn labels = side == SIDE_LEFT ? leftLabels : rightLabels;
 
-        float verticalYAxisCoordAnimation;
+        labels.appearFromBottom = rangeDecreased;
+        animationClock.animate(labels.animationSlot, 1.0f, 0.0f, ANIMATION_DURATION);
+    }
 
-        for (int i = 1; i < AXIS_LEVELS_COUNT; i++) {
-            if (appearFromBottom) {
-                verticalYAxisCoordAnimation = height - bottomAxisMargin - (i - 1) * yDelta - yDelta * animationFraction;
-                canvas.drawText(labelsToUse[i], 0, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, verticalAnimatedLabelsPaint);
-            } else {
-                verticalYAxisCoordAnimation = height - bottomAxisMargin - (AXIS_LEVELS_COUNT) * yDelta + (AXIS_LEVELS_COUNT - i - 1) * yDelta + yDelta * animationFraction;
-                canvas.drawText(labelsToUse[i], 0, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, verticalAnimatedLabelsPaint);
-            }
+    // labels of one scale along one side of the chart
+    private class LabelsColumn {
+
+        private boolean rightSide;
+        private boolean visible;
+
+        // labels are formatted into reusable char buffers, so no strings are created while dragging
+        private char[][] verticalLevelLabels = new char[AXIS_LEVELS_COUNT][MAX_LABEL_LENGTH];
+        private int[] verticalLevelLabelLengths = new int[AXIS_LEVELS_COUNT];
+        private char[][] oldVerticalLevelLabels = new char[AXIS_LEVELS_COUNT][MAX_LABEL_LENGTH];
+        private int[] oldVerticalLevelLabelLengths = new int[AXIS_LEVELS_COUNT];
+        private boolean oldVerticalLevelLabelsInited;
+
+        private Paint verticalLabelsPaint = new Paint();
+        private Paint verticalAnimatedLabelsPaint = new Paint();
+        // 0 unless the labels are of the color of their line
+        private int lineColor;
+
+        private int animationSlot;
+        private boolean appearFromBottom;
+
+        LabelsColumn(boolean rightSide, float axisStrokeWidth, float axisTextSize) {
+            this.rightSide = rightSide;
+
+            Paint.Align align = rightSide ? Paint.Align.RIGHT : Paint.Align.LEFT;
+
+            verticalLabelsPaint.setColor(labelsColor);
+            verticalLabelsPaint.setTextSize(axisTextSize);
+            verticalLabelsPaint.setStrokeWidth(axisStrokeWidth);
+            verticalLabelsPaint.setTextAlign(align);
+            verticalLabelsPaint.setAntiAlias(true);
+            verticalLabelsPaint.setStyle(Paint.Style.FILL);
+
+            verticalAnimatedLabelsPaint.setTextSize(axisTextSize);
+            verticalAnimatedLabelsPaint.setStrokeWidth(axisStrokeWidth);
+            verticalAnimatedLabelsPaint.setTextAlign(align);
+            verticalAnimatedLabelsPaint.setAntiAlias(true);
+            verticalAnimatedLabelsPaint.setStyle(Paint.Style.FILL);
+
+            animationSlot = animationClock.obtainSlot(0, new AnimationClock.OnAnimationEndListener() {
+                @Override
+                public void onAnimationEnd(int slot) {
+                    copyLabelsToOld();
+                }
+            });
         }
 
-        verticalYAxisCoordAnimation = height - bottomAxisMargin;
-        canvas.drawText(labelsToUse[0], 0, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, verticalLabelsPaint);
-    }
+        void setLineColor(int lineColor) {
+            this.lineColor = lineColor;
+
+            updateColor();
+        }
+
+        void updateColor() {
+            verticalLabelsPaint.setColor(lineColor != 0 ? lineColor : labelsColor);
+        }
 
-    public void onLinesVisibilityUpdated(boolean areLinesVisible, int newMaxVisibleValue) {
-        int verticalLevelDelta = (newMaxVisibleValue / AXIS_LEVELS_COUNT);
+        void setRange(boolean areLinesVisible, int minValue, int maxValue) {
+            // long, so the range of a line going from a negative minimum to a large maximum does not overflow
+            long verticalLevelDelta = ((long) maxValue - minValue) / AXIS_LEVELS_COUNT;
 
-        if (!areLinesVisible || verticalLevelDelta == 0)
-            verticalLevelDelta = 1; // in case user is confused
+            if (!areLinesVisible || verticalLevelDelta == 0)
+                verticalLevelDelta = 1; // in case user is confused
 
-        if (oldVerticalLevelValuesAsStrings[0] == null) {
+            //calculationg background levels
             for (int i = 0; i < AXIS_LEVELS_COUNT; i++) {
-                oldVerticalLevelValuesAsStrings[i] = Integer.toString(verticalLevelDelta * i);
+                verticalLevelLabelLengths[i] = formatInt((int) (minValue + verticalLevelDelta * i), verticalLevelLabels[i]);
+            }
+
+            if (!oldVerticalLevelLabelsInited) {
+                copyLabelsToOld();
+                oldVerticalLevelLabelsInited = true;
             }
         }
-        //calculationg background levels
-        for (int i = 0; i < AXIS_LEVELS_COUNT; i++) {
-            verticalLevelValuesAsStrings[i] = Integer.toString(verticalLevelDelta * i);
+
+        private void copyLabelsToOld() {
+            for (int i = 0; i < AXIS_LEVELS_COUNT; i++) {
+                System.arraycopy(verticalLevelLabels[i], 0, oldVerticalLevelLabels[i], 0, verticalLevelLabelLengths[i]);
+                oldVerticalLevelLabelLengths[i] = verticalLevelLabelLengths[i];
+            }
         }
-    }
 
-    public void onNightModeChanged(boolean nightModeOn) {
-        int verticalAxisColor = resources.getColor(nightModeOn ? R.color.darkThemeAxis : R.color.lightThemeAxis);
-        int labelsColor = resources.getColor(nightModeOn ? R.color.darkThemeLabelText : R.color.lightThemeLabelText);
+        void draw(Canvas canvas) {
+            if (!visible) return;
 
-        verticalAxisPaint.setColor(verticalAxisColor);
-        verticalLabelsPaint.setColor(labelsColor);
-    }
+            float axisAnimationFraction = animationClock.getValue(animationSlot);
 
-    public Paint getVerticalAxisPaint() {
-        return verticalAxisPaint;
-    }
+            boolean animationIsHappening = axisAnimationFraction != 0.0f && axisAnimationFraction != 1.0f;
+
+            if (animationIsHappening) {
+                drawAnimated(canvas, axisAnimationFraction, appearFromBottom, true);
+                drawAnimated(canvas, axisAnimationFraction, !appearFromBottom, false);
+            } else {
+                float x = getX();
+
+                for (int i = 0; i < AXIS_LEVELS_COUNT; i++) {
+                    float verticalYAxisCoord = height - bottomAxisMargin - i * yDelta;
+                    canvas.drawText(oldVerticalLevelLabels[i], 0, oldVerticalLevelLabelLengths[i], x, verticalYAxisCoord - AXIS_TEXT_MARGIN_PX, verticalLabelsPaint);
+                }
+            }
+        }
+
+        private void drawAnimated(Canvas canvas, float fraction, boolean appearFromBottom, boolean appearing) {
+            int alpha = appearing ? Math.min((int) (0xff * ((1 - fraction) * (1 - fraction))), 0xff) : Math.min((int) (0xff * (fraction * fraction)), 0xff);
+
+            int color = Color.argb(alpha,
+                    Color.red(verticalLabelsPaint.getColor()),
+                    Color.green(verticalLabelsPaint.getColor()),
+                    Color.blue(verticalLabelsPaint.getColor())
+            );
+
+            verticalAnimatedLabelsPaint.setColor(color);
+
+            float animationFraction = appearing ? (1 - fraction) : fraction;
+
+            char[][] labelsToUse = appearing ? verticalLevelLabels : oldVerticalLevelLabels;
+            int[] labelLengthsToUse = appearing ? verticalLevelLabelLengths : oldVerticalLevelLabelLengths;
+
+            float x = getX();
+            float verticalYAxisCoordAnimation;
+
+            for (int i = 1; i < AXIS_LEVELS_COUNT; i++) {
+                if (appearFromBottom) {
+                    verticalYAxisCoordAnimation = height - bottomAxisMargin - (i - 1) * yDelta - yDelta * animationFraction;
+                    canvas.drawText(labelsToUse[i], 0, labelLengthsToUse[i], x, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, verticalAnimatedLabelsPaint);
+                } else {
+                    verticalYAxisCoordAnimation = height - bottomAxisMargin - (AXIS_LEVELS_COUNT) * yDelta + (AXIS_LEVELS_COUNT - i - 1) * yDelta + yDelta * animationFraction;
+                    canvas.drawText(labelsToUse[i], 0, labelLengthsToUse[i], x, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, verticalAnimatedLabelsPaint);
+                }
+            }
+
+            // the bottom label only changes in place when the minimum changes
+            verticalYAxisCoordAnimation = height - bottomAxisMargin;
+            canvas.drawText(labelsToUse[0], 0, labelLengthsToUse[0], x, verticalYAxisCoordAnimation - AXIS_TEXT_MARGIN_PX, appearing ? verticalLabelsPaint : verticalAnimatedLabelsPaint);
+        }
 
-    public void animateVerticalAxis(boolean maxVisibleValueDecreased) {
-        if (verticalAxisValueAnimator != null) {
-            verticalAxisValueAnimator.pause();
+        private float getX() {
+            return rightSide ? width : 0;
         }
 
-        axisAnimationDirectionAppearFromBottom = maxVisibleValueDecreased;
-        verticalAxisValueAnimator.start();
     }
 
 }
@@ -49,6 +49,11 @@ public class SecondaryChartOnTouchListener implements View.OnTouchListener {
         onRangeChangedListener = listener;
     }
 
+    public void setFrame(float frameStart, float frameWidth) {
+        this.frameStart = frameStart;
+        this.frameWidth = frameWidth;
+    }
+
     @Override
     public boolean onTouch(View chartNavigationView, MotionEvent event) {
 
@@ -69,11 +74,16 @@ public class SecondaryChartOnTouchListener implements View.OnTouchListener {
             dispatchActionUpEvent();
         } else if (event.getAction() == MotionEvent.ACTION_MOVE) {
             if (touchType != TouchType.UNHANDLED_TOUCH) {
-                float x = getActualX(event);
-                float deltaX = getActualDeltaX(x);
-                previousX = x;
+                float deltaX = 0;
+
+                // samples batched by the input system since the previous event, oldest first
+                for (int i = 0; i < event.getHistorySize(); i++) {
+                    deltaX += moveFrameTo(getActualX(event.getHistoricalX(i)));
+                }
+
+                float x = getActualX(event.getX());
+                deltaX += moveFrameTo(x);
 
-                updatedFrameParameters(deltaX);
                 frameUpdatedListener.onFrameUpdated(frameStart, frameWidth);
 
                 dispatchActionMoveEvent(x, event.getY(), deltaX);
@@ -146,21 +156,31 @@ public class SecondaryChartOnTouchListener implements View.OnTouchListener {
         }
     }
 
-    private float getActualX(MotionEvent event) {
+    private float getActualX(float eventX) {
         float x;
 
         //do not handle points outside the view
-        if (event.getX() < 0) {
+        if (eventX < 0) {
             x = 0;
-        } else if (event.getX() > chartWidth) {
+        } else if (eventX > chartWidth) {
             x = chartWidth;
         } else {
-            x = event.getX();
+            x = eventX;
         }
 
         return x;
     }
 
+    // applies one touch sample to the frame, returns the consumed delta
+    private float moveFrameTo(float x) {
+        float deltaX = getActualDeltaX(x);
+        previousX = x;
+
+        updatedFrameParameters(deltaX);
+
+        return deltaX;
+    }
+
     private float getActualDeltaX(float actualX) {
         float dx = actualX - previousX;
 
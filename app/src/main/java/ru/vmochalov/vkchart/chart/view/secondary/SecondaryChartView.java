@@ -1,11 +1,16 @@
 package ru.vmochalov.vkchart.chart.view.secondary;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.util.AttributeSet;
 import android.view.View;
 
 import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.layout.TimeScale;
+import ru.vmochalov.vkchart.chart.view.common.AnimationClock;
+import ru.vmochalov.vkchart.chart.view.common.ChartMetrics;
 import ru.vmochalov.vkchart.chart.view.common.OnRangeChangedListener;
 import ru.vmochalov.vkchart.chart.view.common.RedrawCallback;
 import ru.vmochalov.vkchart.chart.view.common.delegates.ChartDrawDelegate;
@@ -23,9 +28,20 @@ public class SecondaryChartView extends View {
 
     private OnRangeChangedListener onRangeChangedListener;
 
+    private AnimationClock animationClock;
+
+    // null unless the frame metrics are on
+    private ChartMetrics metrics;
+
     private ChartDrawDelegate chartDrawDelegate;
+    private TimeScale timeScale = new TimeScale();
     private FrameDrawDelegate frameDrawDelegate;
 
+    // lines depend only on the chart, visibility and size, so frame drags just composite this layer
+    private Bitmap linesLayer;
+    private Canvas linesLayerCanvas;
+    private boolean linesLayerDirty = true;
+
     public interface FrameUpdatedListener {
         void onFrameUpdated(float start, float width);
     }
@@ -68,25 +84,39 @@ public class SecondaryChartView extends View {
 
     private boolean initialValueIsSent = false;
 
+    // range restored before the width is known, applied on layout
+    private double pendingStartPercent = Double.NaN;
+    private double pendingEndPercent = Double.NaN;
+
     public void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
 
         int width = right - left;
         int height = bottom - top;
 
-        if (!initialValueIsSent) {
-            if (onRangeChangedListener != null) {
-                double frameStartInPercent = frameDrawDelegate.getFrameStart() / width;
-                double frameEndInPercent = (frameDrawDelegate.getFrameEnd()) / width;
-
-                onRangeChangedListener.onVisibleRangeChanged(frameStartInPercent, frameEndInPercent);
+        if (!Double.isNaN(pendingStartPercent) && width > 0) {
+            setFrame((float) (pendingStartPercent * width), (float) ((pendingEndPercent - pendingStartPercent) * width));
+            pendingStartPercent = Double.NaN;
+            pendingEndPercent = Double.NaN;
+        }
 
-                initialValueIsSent = true;
-            }
+        if (!initialValueIsSent) {
+            sendVisibleRange(width);
         }
 
         chartDrawDelegate.onHeightChanged(height);
         updateHorizontalDrawingParams();
+
+        if (linesLayer != null && (linesLayer.getWidth() != width || linesLayer.getHeight() != height)) {
+            releaseLinesLayer();
+        }
+    }
+
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        animationClock.stop();
+        releaseLinesLayer();
     }
 
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
@@ -102,22 +132,75 @@ public class SecondaryChartView extends View {
     public void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
+        if (metrics != null) {
+            metrics.beginSection(ChartMetrics.SECTION_NAVIGATOR);
+        }
+
         frameDrawDelegate.drawFrame(canvas);
-        chartDrawDelegate.drawChart(canvas);
+        drawLinesLayer(canvas);
         frameDrawDelegate.drawShadow(canvas);
+
+        if (metrics != null) {
+            metrics.endSection(ChartMetrics.SECTION_NAVIGATOR);
+        }
+    }
+
+    public void setMetrics(ChartMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void drawLinesLayer(Canvas canvas) {
+        if (getWidth() == 0 || getHeight() == 0) return;
+
+        if (linesLayer == null) {
+            linesLayer = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+            linesLayerCanvas = new Canvas(linesLayer);
+            linesLayerDirty = true;
+        }
+
+        if (linesLayerDirty) {
+            linesLayer.eraseColor(Color.TRANSPARENT);
+            chartDrawDelegate.drawChart(linesLayerCanvas);
+            linesLayerDirty = false;
+        }
+
+        canvas.drawBitmap(linesLayer, 0, 0, null);
+    }
+
+    private void invalidateLinesLayer() {
+        linesLayerDirty = true;
+        invalidate();
+    }
+
+    // the cached lines are painted again when the navigator is drawn
+    public void releaseLayers() {
+        releaseLinesLayer();
+    }
+
+    private void releaseLinesLayer() {
+        if (linesLayer != null) {
+            linesLayer.recycle();
+            linesLayer = null;
+            linesLayerCanvas = null;
+        }
     }
 
     private void initVariableForDrawing() {
-        chartDrawDelegate = new ChartDrawDelegate(
-                LINE_STROKE_WIDTH_PX,
-                VERTICAL_CHART_PADDING_PX,
-                VERTICAL_CHART_PADDING_PX,
+        animationClock = new AnimationClock(
                 new RedrawCallback() {
                     @Override
                     public void onRedrawRequired() {
-                        invalidate();
+                        // alpha and height animations of the lines
+                        invalidateLinesLayer();
                     }
-                },
+                }
+        );
+
+        chartDrawDelegate = new ChartDrawDelegate(
+                LINE_STROKE_WIDTH_PX,
+                VERTICAL_CHART_PADDING_PX,
+                VERTICAL_CHART_PADDING_PX,
+                animationClock,
                 null
         );
 
@@ -128,17 +211,56 @@ public class SecondaryChartView extends View {
         );
     }
 
+    private void sendVisibleRange(int width) {
+        if (onRangeChangedListener != null && width > 0) {
+            double frameStartInPercent = frameDrawDelegate.getFrameStart() / width;
+            double frameEndInPercent = (frameDrawDelegate.getFrameEnd()) / width;
+
+            onRangeChangedListener.onVisibleRangeChanged(frameStartInPercent, frameEndInPercent);
+
+            initialValueIsSent = true;
+        }
+    }
+
+    private void setFrame(float frameStart, float frameWidth) {
+        secondaryChartOnTouchListener.setFrame(frameStart, frameWidth);
+        frameDrawDelegate.onFrameUpdated(frameStart, frameWidth);
+        invalidate();
+    }
+
+    // moves the frame to a range saved earlier, 0.0 <= x <= 1.0
+    public void setVisibleRange(double startPercent, double endPercent) {
+        initialValueIsSent = false;
+
+        if (getWidth() > 0) {
+            setFrame((float) (startPercent * getWidth()), (float) ((endPercent - startPercent) * getWidth()));
+            sendVisibleRange(getWidth());
+        } else {
+            pendingStartPercent = startPercent;
+            pendingEndPercent = endPercent;
+        }
+    }
+
+    public void resetVisibleRange() {
+        initialValueIsSent = false;
+        pendingStartPercent = Double.NaN;
+        pendingEndPercent = Double.NaN;
+
+        setFrame(INITIAL_FRAME_START_POSITION_PX, INITIAL_FRAME_WIDTH_PX);
+        sendVisibleRange(getWidth());
+    }
+
+    // jumps the running line animations to their end, used when the view is bound to another chart
+    public void finishAnimations() {
+        animationClock.stop();
+        invalidateLinesLayer();
+    }
+
     private void updateHorizontalDrawingParams() {
-        if (chart != null && getWidth() > 0 && getHeight() > 0) {
-            int pointsCount = chart.getAbscissa().size() - 1;
-            float xStep = (float) getWidth() / pointsCount;
-
-            chartDrawDelegate.onDrawingParamsChanged(
-                    0,
-                    0,
-                    xStep,
-                    pointsCount
-            );
+        if (chart != null && chart.getPointsCount() > 1 && getWidth() > 0 && getHeight() > 0) {
+            timeScale.set(chart, getWidth(), 0, 1);
+
+            chartDrawDelegate.onDrawingParamsChanged(timeScale);
         }
     }
 
@@ -149,12 +271,19 @@ public class SecondaryChartView extends View {
     public void setChart(Chart chart) {
         this.chart = chart;
 
-        chartDrawDelegate.onChartInited(chart.getLineIds().size(), chart.getColors(), chart.getOrdinates());
+        chartDrawDelegate.onChartInited(chart);
 
         updateVerticalDrawingParams();
         updateHorizontalDrawingParams();
 
-        invalidate();
+        invalidateLinesLayer();
+    }
+
+    public void onPointsAppended() {
+        updateVerticalDrawingParams();
+        updateHorizontalDrawingParams();
+
+        invalidateLinesLayer();
     }
 
     public void setLineVisibility(String lineId, boolean visible) {
@@ -1,8 +1,5 @@
 package ru.vmochalov.vkchart.utils;
 
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Created by Vladimir Mochalov on 18.01.2020.
  */
@@ -16,24 +13,32 @@ public class CalculationUtil {
         return Math.abs(tg) < 1;
     }
 
-    public static int getMaxValue(List<List<Integer>> lists) {
-        int max = Integer.MIN_VALUE;
-
-        for (List<Integer> list : lists) {
-            max = Math.max(max, Collections.max(list));
+    // writes decimal digits of the value into the start of the buffer, returns the number of chars written
+    public static int formatInt(int value, char[] buffer) {
+        if (value == 0) {
+            buffer[0] = '0';
+            return 1;
         }
 
-        return max;
-    }
+        long remaining = Math.abs((long) value);
+        int length = 0;
 
-    public static int getPowOfTwo(int pow) {
-        int result = 1;
+        while (remaining > 0) {
+            buffer[length++] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+
+        if (value < 0) {
+            buffer[length++] = '-';
+        }
 
-        for (int i = 0; i < pow; i++) {
-            result = result << 1;
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char temp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = temp;
         }
 
-        return result;
+        return length;
     }
 
 }
@@ -0,0 +1,39 @@
+package ru.vmochalov.vkchart;
+
+import android.app.Activity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+
+import ru.vmochalov.vkchart.chart.data.ChartLoader;
+import ru.vmochalov.vkchart.chart.view.ChartListView;
+
+/**
+ * The release build has no debug tools, so nothing is added to the menu.
+ * See the debug DebugTools for what the debug build adds.
+ */
+public class DebugTools {
+
+    public DebugTools(Activity activity, ScrollView scrollView, ChartListView chartListView, TextView metricsOverlay) {
+    }
+
+    public void onCreateOptionsMenu(Menu menu) {
+    }
+
+    public boolean onOptionsItemSelected(MenuItem item) {
+        return false;
+    }
+
+    public void onChartsLoaded(ChartLoader chartLoader) {
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+    }
+
+    public void release() {
+    }
+
+}
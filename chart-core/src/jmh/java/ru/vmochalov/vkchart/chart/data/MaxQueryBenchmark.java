@@ -0,0 +1,129 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the max query run on every range change, over random ranges of the chart.
+ * The linear scans are the queries without RangeMinMaxIndex and StackedSums, for comparison.
+ * The toggled query is the first one after a legend toggle, with more sets of lines than StackedSums keeps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MaxQueryBenchmark {
+
+    private static final int LINES_COUNT = 4;
+    private static final int RANGES_COUNT = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int pointsCount;
+
+    private Chart chart;
+    private Chart stackedChart;
+    private boolean[] lineVisibilities;
+    // one line toggled after another, in the Gray code order of all the sets of lines
+    private boolean[] toggledLineVisibilities;
+    private int togglesCount;
+
+    private double[] startPercents = new double[RANGES_COUNT];
+    private double[] endPercents = new double[RANGES_COUNT];
+    private int rangeIndex;
+
+    @Setup
+    public void setUp() {
+        chart = SyntheticCharts.createChart(pointsCount, LINES_COUNT);
+        stackedChart = SyntheticCharts.createStackedChart(pointsCount, LINES_COUNT);
+
+        lineVisibilities = new boolean[LINES_COUNT];
+        Arrays.fill(lineVisibilities, true);
+
+        toggledLineVisibilities = lineVisibilities.clone();
+
+        Random random = SyntheticCharts.newRandom();
+
+        for (int i = 0; i < RANGES_COUNT; i++) {
+            double a = random.nextDouble();
+            double b = random.nextDouble();
+
+            startPercents[i] = Math.min(a, b);
+            endPercents[i] = Math.max(a, b);
+        }
+    }
+
+    @Benchmark
+    public int indexedMaxValue() {
+        int i = rangeIndex++ & (RANGES_COUNT - 1);
+
+        return chart.getMaxValue(lineVisibilities, startPercents[i], endPercents[i]);
+    }
+
+    @Benchmark
+    public int scannedMaxValue() {
+        int i = rangeIndex++ & (RANGES_COUNT - 1);
+
+        int fromIndex = (int) (pointsCount * startPercents[i]);
+        int toIndex = (int) Math.ceil(pointsCount * endPercents[i]);
+        int max = Integer.MIN_VALUE;
+
+        for (int line = 0; line < LINES_COUNT; line++) {
+            int[] ordinate = chart.getOrdinate(line);
+
+            for (int j = fromIndex; j < toIndex; j++) {
+                max = Math.max(max, ordinate[j]);
+            }
+        }
+
+        return max;
+    }
+
+    @Benchmark
+    public int indexedStackedMaxValue() {
+        int i = rangeIndex++ & (RANGES_COUNT - 1);
+
+        return stackedChart.getMaxValue(lineVisibilities, startPercents[i], endPercents[i]);
+    }
+
+    @Benchmark
+    public int toggledStackedMaxValue() {
+        int i = rangeIndex++ & (RANGES_COUNT - 1);
+        int toggledLine = Integer.numberOfTrailingZeros(++togglesCount) % LINES_COUNT;
+
+        toggledLineVisibilities[toggledLine] = !toggledLineVisibilities[toggledLine];
+
+        return stackedChart.getMaxValue(toggledLineVisibilities, startPercents[i], endPercents[i]);
+    }
+
+    @Benchmark
+    public int scannedStackedMaxValue() {
+        int i = rangeIndex++ & (RANGES_COUNT - 1);
+
+        int fromIndex = (int) (pointsCount * startPercents[i]);
+        int toIndex = (int) Math.ceil(pointsCount * endPercents[i]);
+        int[][] ordinates = stackedChart.getOrdinates();
+        int max = Integer.MIN_VALUE;
+
+        for (int j = fromIndex; j < toIndex; j++) {
+            int sum = 0;
+
+            for (int line = 0; line < LINES_COUNT; line++) {
+                sum += ordinates[line][j];
+            }
+
+            max = Math.max(max, sum);
+        }
+
+        return max;
+    }
+
+}
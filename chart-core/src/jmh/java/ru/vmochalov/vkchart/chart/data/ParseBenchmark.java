@@ -0,0 +1,77 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of a whole chart from json, including the indexes built along, and decoding time
+ * of the same points streamed as lines to a live chart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBenchmark {
+
+    private static final int LINES_COUNT = 2;
+    // as read by ChartDataSource
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int BATCH_CAPACITY = 512;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int pointsCount;
+
+    private byte[] json;
+    private byte[] pointLines;
+
+    private PointsBatch batch;
+
+    @Setup
+    public void setUp() {
+        json = SyntheticCharts.createJson(pointsCount, LINES_COUNT);
+        pointLines = SyntheticCharts.createPointLines(pointsCount, LINES_COUNT);
+
+        batch = new PointsBatch(LINES_COUNT, BATCH_CAPACITY);
+    }
+
+    @Benchmark
+    public List<Chart> parseJson() throws IOException, JSONException {
+        return ChartParser.fromJson(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public long decodePointLines() {
+        PointLineDecoder decoder = new PointLineDecoder(LINES_COUNT);
+        long decodedCount = 0;
+
+        batch.clear();
+
+        for (int start = 0; start < pointLines.length; start += READ_BUFFER_SIZE) {
+            int length = Math.min(READ_BUFFER_SIZE, pointLines.length - start);
+            int offset = 0;
+
+            while (offset < length) {
+                offset += decoder.decode(pointLines, start + offset, length - offset, batch);
+
+                if (batch.isFull()) {
+                    decodedCount += batch.count;
+                    batch.clear();
+                }
+            }
+        }
+
+        return decodedCount + batch.count;
+    }
+
+}
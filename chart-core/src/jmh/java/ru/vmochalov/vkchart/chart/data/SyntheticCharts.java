@@ -0,0 +1,178 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random walk datasets for the benchmarks, one point a day like the contest data.
+ * The seed is fixed, so every run measures exactly the same points.
+ */
+public class SyntheticCharts {
+
+    private static final long SEED = 42;
+    private static final long FIRST_TIMESTAMP = 1542412800000L;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    // one in so many points comes after a gap of up to a day
+    private static final int GAP_FREQUENCY = 100;
+
+    private SyntheticCharts() {
+    }
+
+    public static Random newRandom() {
+        return new Random(SEED);
+    }
+
+    public static Chart createChart(int pointsCount, int linesCount) {
+        return createChart(createAbscissa(pointsCount), linesCount);
+    }
+
+    // event driven points: a few minutes apart, now and then after a long gap
+    public static Chart createIrregularChart(int pointsCount, int linesCount) {
+        return createChart(createIrregularAbscissa(pointsCount), linesCount);
+    }
+
+    // stacked bars, as the stacked bar charts of the contest data
+    public static Chart createStackedChart(int pointsCount, int linesCount) {
+        return createChart(createAbscissa(pointsCount), linesCount, Chart.TYPE_BAR, true);
+    }
+
+    private static Chart createChart(long[] abscissa, int linesCount) {
+        return createChart(abscissa, linesCount, Chart.TYPE_LINE, false);
+    }
+
+    private static Chart createChart(long[] abscissa, int linesCount, int type, boolean stacked) {
+        int pointsCount = abscissa.length;
+        int[][] ordinates = createOrdinates(pointsCount, linesCount);
+
+        List<String> lineIds = new ArrayList<>(linesCount);
+        int[] colors = new int[linesCount];
+
+        for (int i = 0; i < linesCount; i++) {
+            lineIds.add("y" + i);
+            colors[i] = 0xff3dc23f;
+        }
+
+        return new Chart(lineIds, abscissa, ordinates, lineIds, colors, type, stacked, false, false);
+    }
+
+    // the format of the chart_data.json resource
+    public static byte[] createJson(int pointsCount, int linesCount) {
+        long[] abscissa = createAbscissa(pointsCount);
+        int[][] ordinates = createOrdinates(pointsCount, linesCount);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(pointsCount * (linesCount + 2) * 8);
+
+        write(output, "{\"columns\":[[\"x\"");
+        for (long timestamp : abscissa) {
+            write(output, ",");
+            write(output, timestamp);
+        }
+        write(output, "]");
+
+        for (int i = 0; i < linesCount; i++) {
+            write(output, ",[\"y" + i + "\"");
+            for (int value : ordinates[i]) {
+                write(output, ",");
+                write(output, value);
+            }
+            write(output, "]");
+        }
+
+        write(output, "],\"types\":{\"x\":\"x\"");
+        for (int i = 0; i < linesCount; i++) {
+            write(output, ",\"y" + i + "\":\"line\"");
+        }
+
+        write(output, "},\"names\":{");
+        for (int i = 0; i < linesCount; i++) {
+            write(output, (i == 0 ? "" : ",") + "\"y" + i + "\":\"#" + i + "\"");
+        }
+
+        write(output, "},\"colors\":{");
+        for (int i = 0; i < linesCount; i++) {
+            write(output, (i == 0 ? "" : ",") + "\"y" + i + "\":\"#3DC23F\"");
+        }
+
+        write(output, "}}");
+
+        return output.toByteArray();
+    }
+
+    // the format of a ChartDataSource stream
+    public static byte[] createPointLines(int pointsCount, int linesCount) {
+        long[] abscissa = createAbscissa(pointsCount);
+        int[][] ordinates = createOrdinates(pointsCount, linesCount);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(pointsCount * (linesCount + 2) * 8);
+
+        for (int i = 0; i < pointsCount; i++) {
+            write(output, abscissa[i]);
+
+            for (int j = 0; j < linesCount; j++) {
+                write(output, " ");
+                write(output, ordinates[j][i]);
+            }
+
+            write(output, "\n");
+        }
+
+        return output.toByteArray();
+    }
+
+    private static long[] createAbscissa(int pointsCount) {
+        long[] abscissa = new long[pointsCount];
+
+        for (int i = 0; i < pointsCount; i++) {
+            abscissa[i] = FIRST_TIMESTAMP + i * DAY_MILLIS;
+        }
+
+        return abscissa;
+    }
+
+    private static long[] createIrregularAbscissa(int pointsCount) {
+        // a seed of its own, so the ordinates are the same as of the regular chart
+        Random random = new Random(SEED + 1);
+        long[] abscissa = new long[pointsCount];
+        long timestamp = FIRST_TIMESTAMP;
+
+        for (int i = 0; i < pointsCount; i++) {
+            abscissa[i] = timestamp;
+
+            timestamp += random.nextInt(GAP_FREQUENCY) == 0
+                    ? 1 + (long) (random.nextDouble() * DAY_MILLIS)
+                    : 1 + random.nextInt(5) * MINUTE_MILLIS;
+        }
+
+        return abscissa;
+    }
+
+    private static int[][] createOrdinates(int pointsCount, int linesCount) {
+        Random random = newRandom();
+        int[][] ordinates = new int[linesCount][pointsCount];
+
+        for (int i = 0; i < linesCount; i++) {
+            int value = 100;
+
+            for (int j = 0; j < pointsCount; j++) {
+                value = Math.max(value + random.nextInt(21) - 10, 0);
+                ordinates[i][j] = value;
+            }
+        }
+
+        return ordinates;
+    }
+
+    private static void write(ByteArrayOutputStream output, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            output.write(text.charAt(i));
+        }
+    }
+
+    private static void write(ByteArrayOutputStream output, long value) {
+        write(output, Long.toString(value));
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.vmochalov.vkchart.chart.data.SyntheticCharts;
+
+/**
+ * Label scaling at random zooms of a 1080 px wide view, from the whole chart down to ten points:
+ * picking the scale alone, and along with finding the visible labels of the range as the draw loop does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LabelScaleBenchmark {
+
+    private static final float WIDTH_PX = 1080;
+    // as HorizontalLabelsDrawDelegate, with a typical "MMM d" width
+    private static final float MAX_LABEL_WIDTH_PX = 60;
+    private static final float LABELS_MIN_DISTANCE_PX = 30;
+    private static final int MIN_VISIBLE_POINTS_COUNT = 10;
+    private static final int ZOOMS_COUNT = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int pointsCount;
+
+    private float[] xSteps = new float[ZOOMS_COUNT];
+    private int[] firstIndexes = new int[ZOOMS_COUNT];
+    private int[] lastIndexes = new int[ZOOMS_COUNT];
+    private int zoomIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = SyntheticCharts.newRandom();
+
+        for (int i = 0; i < ZOOMS_COUNT; i++) {
+            // zooms are spread evenly on the log scale
+            double visibleFraction = Math.pow((double) MIN_VISIBLE_POINTS_COUNT / pointsCount, random.nextDouble());
+            int visiblePointsCount = Math.max((int) (pointsCount * visibleFraction), MIN_VISIBLE_POINTS_COUNT);
+
+            xSteps[i] = WIDTH_PX / (visiblePointsCount - 1);
+            firstIndexes[i] = random.nextInt(pointsCount - visiblePointsCount + 1);
+            lastIndexes[i] = firstIndexes[i] + visiblePointsCount - 1;
+        }
+    }
+
+    @Benchmark
+    public int getScale() {
+        int i = zoomIndex++ & (ZOOMS_COUNT - 1);
+
+        return LabelScale.getScale(MAX_LABEL_WIDTH_PX, LABELS_MIN_DISTANCE_PX, xSteps[i], pointsCount);
+    }
+
+    @Benchmark
+    public int countVisibleLabels() {
+        int i = zoomIndex++ & (ZOOMS_COUNT - 1);
+
+        int scale = LabelScale.getScale(MAX_LABEL_WIDTH_PX, LABELS_MIN_DISTANCE_PX, xSteps[i], pointsCount);
+        int mask = LabelScale.getMask(scale);
+        int visibleCount = 0;
+
+        for (int j = firstIndexes[i]; j <= lastIndexes[i]; j++) {
+            if (LabelScale.isVisible(j, mask)) {
+                visibleCount++;
+            }
+        }
+
+        return visibleCount;
+    }
+
+}
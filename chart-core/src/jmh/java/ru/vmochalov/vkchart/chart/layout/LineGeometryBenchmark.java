@@ -0,0 +1,110 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.data.MinMaxPyramid;
+import ru.vmochalov.vkchart.chart.data.SyntheticCharts;
+
+/**
+ * A line of the whole chart on a 1080 px wide view, as ChartDrawDelegate draws it: building the geometry,
+ * done once the visible points leave its span, and mapping it to the screen, done every frame.
+ * From the buckets of the detail level the view picks, and point by point for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LineGeometryBenchmark {
+
+    private static final float WIDTH_PX = 1080;
+    private static final float HEIGHT_PX = 600;
+    // as ChartDrawDelegate
+    private static final float MAX_BUCKET_WIDTH_PX = 1;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int pointsCount;
+
+    private long[] abscissa;
+    private int[] ordinate;
+    private MinMaxPyramid pyramid;
+    private int detailLevel;
+
+    private float xScale;
+    private float yStep;
+
+    private LineGeometry bucketsGeometry = new LineGeometry();
+    private LineGeometry pointsGeometry = new LineGeometry();
+
+    private float[] points;
+
+    @Setup
+    public void setUp() {
+        Chart chart = SyntheticCharts.createChart(pointsCount, 1);
+
+        abscissa = chart.getAbscissa();
+        ordinate = chart.getOrdinate(0);
+        pyramid = chart.getPyramid(0);
+
+        float xStep = WIDTH_PX / (pointsCount - 1);
+
+        xScale = WIDTH_PX / (abscissa[pointsCount - 1] - abscissa[0]);
+        yStep = HEIGHT_PX / chart.getRangeIndex(0).getMax(0, pointsCount);
+        detailLevel = pyramid.getLevelForStep(xStep, MAX_BUCKET_WIDTH_PX);
+
+        bucketsGeometry.build(abscissa, ordinate, pyramid, 0, pointsCount - 1, detailLevel);
+        pointsGeometry.build(abscissa, ordinate, pyramid, 0, pointsCount - 1, 0);
+
+        points = new float[Math.max(
+                bucketsGeometry.getLength(0, pointsCount - 1),
+                pointsGeometry.getLength(0, pointsCount - 1)
+        )];
+    }
+
+    @Benchmark
+    public LineGeometry buildBuckets() {
+        bucketsGeometry.build(abscissa, ordinate, pyramid, 0, pointsCount - 1, detailLevel);
+
+        return bucketsGeometry;
+    }
+
+    @Benchmark
+    public LineGeometry buildPoints() {
+        pointsGeometry.build(abscissa, ordinate, pyramid, 0, pointsCount - 1, 0);
+
+        return pointsGeometry;
+    }
+
+    @Benchmark
+    public float[] mapBuckets() {
+        return map(bucketsGeometry);
+    }
+
+    @Benchmark
+    public float[] mapPoints() {
+        return map(pointsGeometry);
+    }
+
+    private float[] map(LineGeometry geometry) {
+        geometry.map(
+                geometry.getOffset(0),
+                geometry.getLength(0, pointsCount - 1),
+                0,
+                xScale,
+                HEIGHT_PX,
+                yStep,
+                points
+        );
+
+        return points;
+    }
+
+}
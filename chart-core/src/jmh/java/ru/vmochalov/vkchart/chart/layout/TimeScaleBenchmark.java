@@ -0,0 +1,70 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+import ru.vmochalov.vkchart.chart.data.SyntheticCharts;
+
+/**
+ * Lookups over the timestamps of an irregularly sampled chart on a 1080 px wide view: setting a range,
+ * which finds the visible points, and hit testing a touch at random x.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeScaleBenchmark {
+
+    private static final float WIDTH_PX = 1080;
+    private static final int QUERIES_COUNT = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int pointsCount;
+
+    private Chart chart;
+    private TimeScale timeScale = new TimeScale();
+
+    private double[] startPercents = new double[QUERIES_COUNT];
+    private float[] touches = new float[QUERIES_COUNT];
+    private int queryIndex;
+
+    @Setup
+    public void setUp() {
+        chart = SyntheticCharts.createIrregularChart(pointsCount, 1);
+
+        Random random = SyntheticCharts.newRandom();
+
+        for (int i = 0; i < QUERIES_COUNT; i++) {
+            startPercents[i] = random.nextDouble() * 0.9;
+            touches[i] = random.nextFloat() * WIDTH_PX;
+        }
+
+        timeScale.set(chart, WIDTH_PX, 0.45, 0.55);
+    }
+
+    @Benchmark
+    public int setRange() {
+        int i = queryIndex++ & (QUERIES_COUNT - 1);
+
+        timeScale.set(chart, WIDTH_PX, startPercents[i], startPercents[i] + 0.1);
+
+        return timeScale.getLastVisiblePointIndex();
+    }
+
+    @Benchmark
+    public int getClosestPointIndex() {
+        int i = queryIndex++ & (QUERIES_COUNT - 1);
+
+        return timeScale.getClosestPointIndex(touches[i]);
+    }
+
+}
@@ -0,0 +1,309 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Created by Vladimir Mochalov on 10.03.2019.
+ */
+public class Chart {
+
+    public static final int TYPE_LINE = 0;
+    public static final int TYPE_BAR = 1;
+    public static final int TYPE_AREA = 2;
+
+    private static final int PERCENTAGE_MAX_VALUE = 100;
+
+    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM d");
+
+    private List<String> lineIds;
+
+    // timestamps in millis, one per point, non-decreasing but not necessarily evenly spaced
+    private long[] abscissa;
+    // formatted lazily, only labels which are actually shown are ever created
+    private String[] abscissaAsString;
+    // one primitive column per line, each of abscissa.length values
+    private int[][] ordinates;
+    private List<String> labels;
+    private int[] colors;
+
+    // all the lines of a chart are of the same type
+    private int type;
+    private boolean stacked;
+    // stacked lines are drawn as shares of their sum at every point
+    private boolean percentage;
+    // every line is drawn from its own minimum to its own maximum
+    private boolean yScaled;
+
+    // min/max indexes and level of detail pyramids over every line, built along with the chart off the main thread
+    private RangeMinMaxIndex[] rangeIndexes;
+    private MinMaxPyramid[] pyramids;
+    // tops of the stack for the latest sets of visible lines, null unless the chart is stacked
+    private StackedSums stackedSums;
+
+    // points are stored at [pointsOffset, pointsOffset + pointsCount) of the arrays, a LiveChart moves this window
+    private int pointsOffset;
+    private int pointsCount;
+
+    public static List<Chart> fromJson(InputStream inputStream) throws IOException, JSONException {
+        return ChartParser.fromJson(inputStream);
+    }
+
+    Chart(
+            List<String> lineIds,
+            long[] abscissa,
+            int[][] ordinates,
+            List<String> labels,
+            int[] colors
+    ) {
+        this(lineIds, abscissa, ordinates, labels, colors, TYPE_LINE, false, false, false);
+    }
+
+    Chart(
+            List<String> lineIds,
+            long[] abscissa,
+            int[][] ordinates,
+            List<String> labels,
+            int[] colors,
+            int type,
+            boolean stacked,
+            boolean percentage,
+            boolean yScaled
+    ) {
+        this.lineIds = lineIds;
+        this.abscissa = abscissa;
+        this.ordinates = ordinates;
+        this.labels = labels;
+        this.colors = colors;
+        this.type = type;
+        this.stacked = stacked;
+        this.percentage = percentage;
+        this.yScaled = yScaled;
+
+        this.abscissaAsString = new String[abscissa.length];
+
+        this.pointsOffset = 0;
+        this.pointsCount = abscissa.length;
+
+        this.rangeIndexes = new RangeMinMaxIndex[ordinates.length];
+        this.pyramids = new MinMaxPyramid[ordinates.length];
+        for (int i = 0; i < ordinates.length; i++) {
+            rangeIndexes[i] = new RangeMinMaxIndex(ordinates[i]);
+            pyramids[i] = new MinMaxPyramid(ordinates[i]);
+        }
+
+        if (stacked) {
+            stackedSums = new StackedSums(ordinates);
+        }
+    }
+
+    public int getPointsCount() {
+        return pointsCount;
+    }
+
+    // index of the first point in the arrays returned by getAbscissa and getOrdinates
+    public int getPointsOffset() {
+        return pointsOffset;
+    }
+
+    void setPointsWindow(int pointsOffset, int pointsCount) {
+        this.pointsOffset = pointsOffset;
+        this.pointsCount = pointsCount;
+    }
+
+    // called after the value of every line at the given array index has been overwritten
+    void onPointChanged(int arrayIndex) {
+        abscissaAsString[arrayIndex] = null;
+
+        for (int i = 0; i < ordinates.length; i++) {
+            rangeIndexes[i].update(arrayIndex, ordinates[i][arrayIndex]);
+            pyramids[i].update(arrayIndex);
+        }
+
+        if (stackedSums != null) {
+            stackedSums.update(arrayIndex);
+        }
+    }
+
+    // one of TYPE_LINE, TYPE_BAR and TYPE_AREA
+    public int getType() {
+        return type;
+    }
+
+    public boolean isStacked() {
+        return stacked;
+    }
+
+    public boolean isPercentage() {
+        return percentage;
+    }
+
+    public boolean isYScaled() {
+        return yScaled;
+    }
+
+    public int getLinesCount() {
+        return ordinates.length;
+    }
+
+    public long[] getAbscissa() {
+        return abscissa;
+    }
+
+    public long getTimestamp(int pointIndex) {
+        return abscissa[pointsOffset + pointIndex];
+    }
+
+    // the time at the given fraction of the time between the first and the last point
+    public long getTimestampAt(double percent) {
+        if (pointsCount == 0) return 0;
+
+        long firstTimestamp = abscissa[pointsOffset];
+        long lastTimestamp = abscissa[pointsOffset + pointsCount - 1];
+
+        return firstTimestamp + Math.round(percent * (lastTimestamp - firstTimestamp));
+    }
+
+    // index of the first point not earlier than the timestamp, getPointsCount() if there is none; O(log n)
+    public int findPointIndex(long timestamp) {
+        int low = pointsOffset;
+        int high = pointsOffset + pointsCount;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (abscissa[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low - pointsOffset;
+    }
+
+    // render threads format labels too, so the shared format is used under its own lock;
+    // a label cached twice by two threads is the same string
+    public String getAbscissaLabel(int pointIndex) {
+        int arrayIndex = pointsOffset + pointIndex;
+        String label = abscissaAsString[arrayIndex];
+
+        if (label == null) {
+            synchronized (dateFormat) {
+                label = dateFormat.format(new Date(abscissa[arrayIndex]));
+            }
+            abscissaAsString[arrayIndex] = label;
+        }
+
+        return label;
+    }
+
+    public int[][] getOrdinates() {
+        return ordinates;
+    }
+
+    public int[] getOrdinate(int lineIndex) {
+        return ordinates[lineIndex];
+    }
+
+    public int getValue(int lineIndex, int pointIndex) {
+        return ordinates[lineIndex][pointsOffset + pointIndex];
+    }
+
+    public RangeMinMaxIndex getRangeIndex(int lineIndex) {
+        return rangeIndexes[lineIndex];
+    }
+
+    public MinMaxPyramid getPyramid(int lineIndex) {
+        return pyramids[lineIndex];
+    }
+
+    // the largest value of the visible lines over [startPercent, endPercent] of the time, 0 if no line is visible;
+    // the points just outside the range count too, as the lines going to them are visible.
+    // For a stacked chart it is the highest stack of the visible lines, 100 for a percentage one
+    public int getMaxValue(boolean[] lineVisibilities, double startPercent, double endPercent) {
+        if (pointsCount == 0) return 0;
+
+        boolean anyLineVisible = false;
+
+        for (int i = 0; i < ordinates.length; i++) {
+            anyLineVisible |= lineVisibilities[i];
+        }
+
+        if (!anyLineVisible) return 0;
+        if (percentage) return PERCENTAGE_MAX_VALUE;
+
+        int firstArrayIndex = getFirstArrayIndex(startPercent);
+        int lastArrayIndex = getLastArrayIndex(endPercent);
+
+        if (stacked) {
+            return stackedSums.getMax(lineVisibilities, firstArrayIndex, lastArrayIndex);
+        }
+
+        int max = Integer.MIN_VALUE;
+
+        for (int i = 0; i < ordinates.length; i++) {
+            if (lineVisibilities[i]) {
+                max = Math.max(max, rangeIndexes[i].getMax(firstArrayIndex, lastArrayIndex));
+            }
+        }
+
+        return max;
+    }
+
+    // the smallest value of one line over [startPercent, endPercent] of the time, O(log n)
+    public int getMinValue(int lineIndex, double startPercent, double endPercent) {
+        if (pointsCount == 0) return 0;
+
+        return rangeIndexes[lineIndex].getMin(getFirstArrayIndex(startPercent), getLastArrayIndex(endPercent));
+    }
+
+    // the largest value of one line over [startPercent, endPercent] of the time, O(log n)
+    public int getMaxValue(int lineIndex, double startPercent, double endPercent) {
+        if (pointsCount == 0) return 0;
+
+        return rangeIndexes[lineIndex].getMax(getFirstArrayIndex(startPercent), getLastArrayIndex(endPercent));
+    }
+
+    // array index of the point just before the range, inclusive
+    private int getFirstArrayIndex(double startPercent) {
+        return pointsOffset + Math.max(findPointIndex(getTimestampAt(startPercent)) - 1, 0);
+    }
+
+    // array index of the point just after the range, exclusive
+    private int getLastArrayIndex(double endPercent) {
+        return pointsOffset + Math.min(findPointIndex(getTimestampAt(endPercent)) + 1, pointsCount);
+    }
+
+    // approximate heap size in bytes of the points and the indexes over them, for caches bounded by memory:
+    // a timestamp and a label reference per point, and per line the values, the two trees of the range
+    // index and the pyramid, whose levels add up to about one min and one max per point
+    public int getApproximateSize() {
+        long pointsCount = abscissa.length;
+        long size = pointsCount * (8 + 4) + ordinates.length * pointsCount * (4 + 16 + 8);
+
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public int getColor(int lineIndex) {
+        return colors[lineIndex];
+    }
+
+    public List<String> getLineIds() {
+        return lineIds;
+    }
+
+}
@@ -0,0 +1,240 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary copy of parsed charts, used to skip json parsing on the next launches.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header: magic int, version int, source hash long, charts count int
+ * chart:  points count int, lines count int, type byte, stacked byte, percentage byte, y scaled byte,
+ *         per line: id, label (short length + utf-8 bytes), color int,
+ *         first timestamp long, then zigzag varint deltas of the timestamps,
+ *         per line: zigzag varint deltas of the values
+ * </pre>
+ */
+class ChartCache {
+
+    private static final int MAGIC = 0x564b4348; // "VKCH"
+    private static final int VERSION = 3;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int HASH_BUFFER_SIZE = 8 * 1024;
+
+    private File file;
+
+    ChartCache(File file) {
+        this.file = file;
+    }
+
+    static long computeHash(InputStream inputStream) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        long length = 0;
+        int read;
+
+        while ((read = inputStream.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            length += read;
+        }
+
+        // length in the high bits makes collisions of different sized sources impossible
+        return (length << 32) | crc.getValue();
+    }
+
+    // returns null if there is no valid cache for the given source
+    List<Chart> read(long sourceHash) throws IOException {
+        if (!file.exists()) return null;
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < 20
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != VERSION
+                    || buffer.getLong() != sourceHash) {
+                return null;
+            }
+
+            int chartsCount = buffer.getInt();
+            List<Chart> charts = new ArrayList<>(chartsCount);
+
+            for (int i = 0; i < chartsCount; i++) {
+                charts.add(readChart(buffer));
+            }
+
+            return charts;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new IOException("Corrupted chart cache: " + file, ex);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    void write(long sourceHash, List<Chart> charts) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(sourceHash);
+            output.writeInt(charts.size());
+
+            for (Chart chart : charts) {
+                writeChart(output, chart);
+            }
+        } finally {
+            output.close();
+        }
+
+        // the cache is replaced atomically, so a crash while writing never leaves a broken file
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Unable to write chart cache: " + file);
+        }
+    }
+
+    void delete() {
+        file.delete();
+    }
+
+    private static Chart readChart(ByteBuffer buffer) {
+        int pointsCount = buffer.getInt();
+        int linesCount = buffer.getInt();
+        int type = buffer.get();
+        boolean stacked = buffer.get() != 0;
+        boolean percentage = buffer.get() != 0;
+        boolean yScaled = buffer.get() != 0;
+
+        List<String> lineIds = new ArrayList<>(linesCount);
+        List<String> labels = new ArrayList<>(linesCount);
+        int[] colors = new int[linesCount];
+
+        for (int i = 0; i < linesCount; i++) {
+            lineIds.add(readString(buffer));
+            labels.add(readString(buffer));
+            colors[i] = buffer.getInt();
+        }
+
+        long[] abscissa = new long[pointsCount];
+
+        if (pointsCount > 0) {
+            abscissa[0] = buffer.getLong();
+            for (int j = 1; j < pointsCount; j++) {
+                abscissa[j] = abscissa[j - 1] + readVarLong(buffer);
+            }
+        }
+
+        int[][] ordinates = new int[linesCount][pointsCount];
+
+        for (int i = 0; i < linesCount; i++) {
+            int[] line = ordinates[i];
+            int previous = 0;
+            for (int j = 0; j < pointsCount; j++) {
+                previous += (int) readVarLong(buffer);
+                line[j] = previous;
+            }
+        }
+
+        return new Chart(lineIds, abscissa, ordinates, labels, colors, type, stacked, percentage, yScaled);
+    }
+
+    private static void writeChart(DataOutputStream output, Chart chart) throws IOException {
+        int pointsCount = chart.getPointsCount();
+        int linesCount = chart.getLinesCount();
+
+        output.writeInt(pointsCount);
+        output.writeInt(linesCount);
+        output.writeByte(chart.getType());
+        output.writeBoolean(chart.isStacked());
+        output.writeBoolean(chart.isPercentage());
+        output.writeBoolean(chart.isYScaled());
+
+        for (int i = 0; i < linesCount; i++) {
+            writeString(output, chart.getLineIds().get(i));
+            writeString(output, chart.getLabels().get(i));
+            output.writeInt(chart.getColor(i));
+        }
+
+        long[] abscissa = chart.getAbscissa();
+
+        if (pointsCount > 0) {
+            output.writeLong(abscissa[0]);
+            for (int j = 1; j < pointsCount; j++) {
+                writeVarLong(output, abscissa[j] - abscissa[j - 1]);
+            }
+        }
+
+        for (int i = 0; i < linesCount; i++) {
+            int[] line = chart.getOrdinate(i);
+            int previous = 0;
+            for (int j = 0; j < pointsCount; j++) {
+                writeVarLong(output, (long) line[j] - previous);
+                previous = line[j];
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+
+        return new String(bytes, CHARSET);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(CHARSET);
+
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    // zigzag + LEB128, so small deltas of either sign take a single byte
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7fL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        int shift = 0;
+        byte next;
+
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+            next = buffer.get();
+            zigzag |= (long) (next & 0x7f) << shift;
+            shift += 7;
+        } while ((next & 0x80) != 0);
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+}
@@ -0,0 +1,340 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ChartParser {
+
+    private static final String CHARSET = "UTF-8";
+
+    private static final String KEY_TYPES = "types";
+    private static final String KEY_NAMES = "names";
+    private static final String KEY_COLORS = "colors";
+    private static final String KEY_COLUMNS = "columns";
+    private static final String KEY_STACKED = "stacked";
+    private static final String KEY_PERCENTAGE = "percentage";
+    private static final String KEY_Y_SCALED = "y_scaled";
+
+    private static final String TYPE_X = "x";
+    private static final String TYPE_LINE = "line";
+    private static final String TYPE_BAR = "bar";
+    private static final String TYPE_AREA = "area";
+
+    // capacity of the first column, the rest are sized from it
+    private static final int INITIAL_COLUMN_CAPACITY = 256;
+
+    interface OnChartParsedListener {
+        void onChartParsed(Chart chart);
+    }
+
+    // values of a column as read: ints, unless one of them needs a long, from which on all are longs
+    private static class Column {
+        String name;
+        int[] ints;
+        long[] longs;
+    }
+
+    static List<Chart> fromJson(InputStream inputStream) throws IOException, JSONException {
+        final List<Chart> charts = new ArrayList<>();
+
+        fromJson(inputStream, new OnChartParsedListener() {
+            @Override
+            public void onChartParsed(Chart chart) {
+                charts.add(chart);
+            }
+        });
+
+        return charts;
+    }
+
+    static void fromJson(InputStream inputStream, OnChartParsedListener listener) throws IOException, JSONException {
+        fromJson(new InputStreamReader(inputStream, CHARSET), listener);
+    }
+
+    // Accepts either a single chart object or an array of them, every chart is reported as soon as it is read
+    static void fromJson(Reader reader, OnChartParsedListener listener) throws IOException, JSONException {
+        JsonTokenizer tokenizer = new JsonTokenizer(reader);
+
+        if (tokenizer.peek() == '[') {
+            tokenizer.beginArray();
+            while (tokenizer.hasNext()) {
+                listener.onChartParsed(readChart(tokenizer));
+            }
+            tokenizer.endArray();
+        } else {
+            listener.onChartParsed(readChart(tokenizer));
+        }
+    }
+
+    private static Chart readChart(JsonTokenizer tokenizer) throws IOException, JSONException {
+        Map<String, String> types = null;
+        Map<String, String> names = null;
+        Map<String, String> colorValues = null;
+
+        // the key order is not defined, so columns are kept as read until types are known
+        List<Column> columns = null;
+
+        boolean stacked = false;
+        boolean percentage = false;
+        boolean yScaled = false;
+
+        tokenizer.beginObject();
+
+        while (tokenizer.hasNext()) {
+            String key = tokenizer.nextName();
+
+            if (key.equals(KEY_TYPES)) {
+                types = readStringMap(tokenizer);
+            } else if (key.equals(KEY_NAMES)) {
+                names = readStringMap(tokenizer);
+            } else if (key.equals(KEY_COLORS)) {
+                colorValues = readStringMap(tokenizer);
+            } else if (key.equals(KEY_COLUMNS)) {
+                columns = readColumns(tokenizer);
+            } else if (key.equals(KEY_STACKED)) {
+                stacked = tokenizer.nextBoolean();
+            } else if (key.equals(KEY_PERCENTAGE)) {
+                percentage = tokenizer.nextBoolean();
+            } else if (key.equals(KEY_Y_SCALED)) {
+                yScaled = tokenizer.nextBoolean();
+            } else {
+                tokenizer.skipValue();
+            }
+        }
+
+        tokenizer.endObject();
+
+        require(types, KEY_TYPES);
+        require(names, KEY_NAMES);
+        require(colorValues, KEY_COLORS);
+        require(columns, KEY_COLUMNS);
+
+        String xId = null;
+        String lineType = null;
+        List<String> lineIds = new ArrayList<>();
+
+        for (Map.Entry<String, String> type : types.entrySet()) {
+            String value = type.getValue();
+
+            if (value.equals(TYPE_LINE) || value.equals(TYPE_BAR) || value.equals(TYPE_AREA)) {
+                // the lines of a chart are drawn alike, so they are stacked on each other if at all
+                if (lineType != null && !lineType.equals(value)) {
+                    throw new IllegalStateException("Mixed types for input data: " + types.toString());
+                }
+                lineType = value;
+                lineIds.add(type.getKey());
+            } else if (xId == null && value.equals(TYPE_X)) {
+                xId = type.getKey();
+            } else {
+                throw new IllegalStateException("Invalid types for input data: " + types.toString());
+            }
+        }
+
+        if (xId == null) {
+            throw new IllegalStateException("No x type found: " + types.toString());
+        }
+
+        List<String> labels = new ArrayList<>(lineIds.size());
+        int[] colors = new int[lineIds.size()];
+
+        for (int i = 0; i < lineIds.size(); i++) {
+            String id = lineIds.get(i);
+            labels.add(getString(names, id));
+            colors[i] = parseColor(getString(colorValues, id));
+        }
+
+        long[] abscissa = null;
+        int[][] ordinates = new int[lineIds.size()][];
+
+        for (Column column : columns) {
+            if (column.name.equals(xId)) {
+                abscissa = column.longs != null ? column.longs : toLongColumn(column.ints);
+            } else if (lineIds.contains(column.name)) {
+                if (column.longs != null) {
+                    throw new JSONException("Value out of the int range in the column of line: " + column.name);
+                }
+                ordinates[lineIds.indexOf(column.name)] = column.ints;
+            }
+        }
+
+        validateColumns(lineIds, abscissa, ordinates);
+
+        // percentages only make sense for lines stacked up to the whole,
+        // and lines stacked on each other can not be scaled apart
+        return new Chart(
+                lineIds,
+                abscissa,
+                ordinates,
+                labels,
+                colors,
+                toChartType(lineType),
+                stacked || percentage,
+                percentage,
+                yScaled && !stacked && !percentage
+        );
+    }
+
+    private static int toChartType(String lineType) {
+        if (TYPE_BAR.equals(lineType)) {
+            return Chart.TYPE_BAR;
+        } else if (TYPE_AREA.equals(lineType)) {
+            return Chart.TYPE_AREA;
+        }
+
+        return Chart.TYPE_LINE;
+    }
+
+    private static Map<String, String> readStringMap(JsonTokenizer tokenizer) throws IOException, JSONException {
+        Map<String, String> result = new LinkedHashMap<>();
+
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            String key = tokenizer.nextName();
+            result.put(key, tokenizer.nextString());
+        }
+        tokenizer.endObject();
+
+        return result;
+    }
+
+    private static List<Column> readColumns(JsonTokenizer tokenizer) throws IOException, JSONException {
+        List<Column> columns = new ArrayList<>();
+        // all the columns have the same length, so the first one gives the size for the rest
+        int expectedSize = 0;
+
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            tokenizer.beginArray();
+
+            Column column = new Column();
+            column.name = tokenizer.nextString();
+            readValues(tokenizer, column, expectedSize);
+            columns.add(column);
+
+            expectedSize = column.ints != null ? column.ints.length : column.longs.length;
+
+            tokenizer.endArray();
+        }
+        tokenizer.endArray();
+
+        return columns;
+    }
+
+    // values go straight into ints, a line is never read into longs to be narrowed later;
+    // timestamps need longs from the first value on, so at most a few ints are copied for them
+    private static void readValues(JsonTokenizer tokenizer, Column column, int expectedSize) throws IOException, JSONException {
+        int[] ints = new int[expectedSize > 0 ? expectedSize : INITIAL_COLUMN_CAPACITY];
+        int count = 0;
+        long value = 0;
+        boolean intsOnly = true;
+
+        while (tokenizer.hasNext()) {
+            value = tokenizer.nextLong();
+
+            if (value != (int) value) {
+                intsOnly = false;
+                break;
+            }
+
+            if (count == ints.length) {
+                ints = Arrays.copyOf(ints, count * 2);
+            }
+            ints[count++] = (int) value;
+        }
+
+        if (intsOnly) {
+            column.ints = count == ints.length ? ints : Arrays.copyOf(ints, count);
+            return;
+        }
+
+        long[] longs = new long[Math.max(ints.length, count + 1)];
+
+        for (int i = 0; i < count; i++) {
+            longs[i] = ints[i];
+        }
+        longs[count++] = value;
+
+        while (tokenizer.hasNext()) {
+            if (count == longs.length) {
+                longs = Arrays.copyOf(longs, count * 2);
+            }
+            longs[count++] = tokenizer.nextLong();
+        }
+
+        column.longs = count == longs.length ? longs : Arrays.copyOf(longs, count);
+    }
+
+    private static long[] toLongColumn(int[] column) {
+        long[] result = new long[column.length];
+
+        for (int i = 0; i < column.length; i++) {
+            result[i] = column[i];
+        }
+
+        return result;
+    }
+
+    private static void require(Object value, String key) throws JSONException {
+        if (value == null) {
+            throw new JSONException("No value for " + key);
+        }
+    }
+
+    private static String getString(Map<String, String> map, String key) throws JSONException {
+        String value = map.get(key);
+        require(value, key);
+
+        return value;
+    }
+
+    // the #RRGGBB and #AARRGGBB forms of android.graphics.Color.parseColor, the module has no Android dependencies
+    private static int parseColor(String color) throws JSONException {
+        if (color.length() != 7 && color.length() != 9 || color.charAt(0) != '#') {
+            throw new JSONException("Unknown color: " + color);
+        }
+
+        int value = 0;
+
+        // hex digits only, so neither a sign nor more than 32 bits get in
+        for (int i = 1; i < color.length(); i++) {
+            int digit = Character.digit(color.charAt(i), 16);
+
+            if (digit == -1) {
+                throw new JSONException("Unknown color: " + color);
+            }
+
+            value = (value << 4) | digit;
+        }
+
+        if (color.length() == 7) {
+            value |= 0xff000000;
+        }
+
+        // the 32 bits are the ARGB of the color, the sign is the top bit of the alpha
+        return value;
+    }
+
+    private static void validateColumns(List<String> lineIds, long[] abscissa, int[][] ordinates) {
+        if (abscissa == null) {
+            throw new IllegalStateException("No x column found");
+        }
+
+        for (int i = 0; i < ordinates.length; i++) {
+            if (ordinates[i] == null) {
+                throw new IllegalStateException("No column found for line: " + lineIds.get(i));
+            }
+            if (ordinates[i].length != abscissa.length) {
+                throw new IllegalStateException("Column size mismatch for line: " + lineIds.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal pull tokenizer over a character stream. Reads values one by one straight from the
+ * reader, so neither the whole input nor a json tree is ever kept in memory.
+ */
+class JsonTokenizer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int INITIAL_DEPTH = 16;
+
+    private Reader reader;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long consumed;
+
+    // whether a comma has to be consumed before the next value of the container on each level
+    private boolean[] commaExpected = new boolean[INITIAL_DEPTH];
+    private int depth;
+
+    private StringBuilder stringBuilder = new StringBuilder();
+
+    JsonTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    char peek() throws IOException, JSONException {
+        return (char) peekNonWhitespace();
+    }
+
+    void beginObject() throws IOException, JSONException {
+        expect('{');
+        push();
+    }
+
+    void endObject() throws IOException, JSONException {
+        expect('}');
+        pop();
+    }
+
+    void beginArray() throws IOException, JSONException {
+        expect('[');
+        push();
+    }
+
+    void endArray() throws IOException, JSONException {
+        expect(']');
+        pop();
+    }
+
+    boolean hasNext() throws IOException, JSONException {
+        int c = peekNonWhitespace();
+
+        if (c == '}' || c == ']') {
+            return false;
+        }
+
+        if (commaExpected[depth]) {
+            expect(',');
+            commaExpected[depth] = false;
+        }
+
+        return true;
+    }
+
+    String nextName() throws IOException, JSONException {
+        String name = readString();
+        expect(':');
+
+        return name;
+    }
+
+    String nextString() throws IOException, JSONException {
+        String value = readString();
+        onValueRead();
+
+        return value;
+    }
+
+    long nextLong() throws IOException, JSONException {
+        int c = peekNonWhitespace();
+
+        boolean negative = c == '-';
+        if (negative) {
+            position++;
+        }
+
+        long value = 0;
+        int digits = 0;
+
+        while ((c = peekChar()) >= '0' && c <= '9') {
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                throw syntaxError("Number out of the long range");
+            }
+            value = value * 10 + (c - '0');
+            position++;
+            digits++;
+        }
+
+        if (digits == 0) {
+            throw syntaxError("Expected a number");
+        }
+
+        if (c == '.' || c == 'e' || c == 'E') {
+            // not expected for chart data, so the slow path is fine here
+            stringBuilder.setLength(0);
+            if (negative) {
+                stringBuilder.append('-');
+            }
+            stringBuilder.append(value);
+
+            while ((c = peekChar()) != -1 && isNumberPart((char) c)) {
+                stringBuilder.append((char) c);
+                position++;
+            }
+
+            onValueRead();
+
+            try {
+                return (long) Double.parseDouble(stringBuilder.toString());
+            } catch (NumberFormatException ex) {
+                throw syntaxError("Invalid number " + stringBuilder);
+            }
+        }
+
+        onValueRead();
+
+        return negative ? -value : value;
+    }
+
+    boolean nextBoolean() throws IOException, JSONException {
+        int c = peekNonWhitespace();
+
+        if (c == 't') {
+            expectLiteral("true");
+            return true;
+        } else if (c == 'f') {
+            expectLiteral("false");
+            return false;
+        }
+
+        throw syntaxError("Expected a boolean");
+    }
+
+    void skipValue() throws IOException, JSONException {
+        int c = peekNonWhitespace();
+
+        if (c == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (c == '[') {
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        } else if (c == '"') {
+            nextString();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            nextLong();
+        } else if (c == 't') {
+            expectLiteral("true");
+        } else if (c == 'f') {
+            expectLiteral("false");
+        } else if (c == 'n') {
+            expectLiteral("null");
+        } else {
+            throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private String readString() throws IOException, JSONException {
+        expect('"');
+
+        stringBuilder.setLength(0);
+
+        int c;
+        while ((c = readChar()) != '"') {
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else if (c == '\\') {
+                stringBuilder.append(readEscapedChar());
+            } else {
+                stringBuilder.append((char) c);
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    private char readEscapedChar() throws IOException, JSONException {
+        int c = readChar();
+
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int result = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readChar(), 16);
+                    if (digit == -1) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    result = (result << 4) + digit;
+                }
+                return (char) result;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void expectLiteral(String literal) throws IOException, JSONException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (readChar() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        onValueRead();
+    }
+
+    private void expect(char expected) throws IOException, JSONException {
+        int c = peekNonWhitespace();
+
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "' but was '" + (char) c + "'");
+        }
+
+        position++;
+    }
+
+    private void push() {
+        depth++;
+
+        if (depth == commaExpected.length) {
+            commaExpected = Arrays.copyOf(commaExpected, depth * 2);
+        }
+
+        commaExpected[depth] = false;
+    }
+
+    private void pop() {
+        depth--;
+        onValueRead();
+    }
+
+    private void onValueRead() {
+        commaExpected[depth] = true;
+    }
+
+    private int peekNonWhitespace() throws IOException, JSONException {
+        int c;
+
+        while ((c = peekChar()) != -1) {
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position++;
+            } else {
+                return c;
+            }
+        }
+
+        throw syntaxError("End of input");
+    }
+
+    private int peekChar() throws IOException {
+        if (position == limit && !fillBuffer()) {
+            return -1;
+        }
+
+        return buffer[position];
+    }
+
+    private int readChar() throws IOException {
+        if (position == limit && !fillBuffer()) {
+            return -1;
+        }
+
+        return buffer[position++];
+    }
+
+    private boolean fillBuffer() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = 0;
+
+        int read = reader.read(buffer, 0, buffer.length);
+
+        if (read > 0) {
+            limit = read;
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean isNumberPart(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + (consumed + position));
+    }
+
+}
@@ -0,0 +1,163 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chart which grows as points arrive and keeps the latest ones only. Every line is a ring buffer
+ * stored twice in a row (value i at i and i + capacity), so the kept points are always a contiguous
+ * window of the arrays and the draw path, range indexes and pyramids work on it unchanged.
+ * Appends update the indexes and pyramids in O(log capacity), expected on the main thread only.
+ * A point whose timestamp is lower than the latest one is dropped, as the draw path and the range
+ * lookups rely on timestamps which never go back.
+ */
+public class LiveChart extends Chart {
+
+    public interface OnPointsAppendedListener {
+        void onPointsAppended(int appendedCount, int droppedCount);
+    }
+
+    private int capacity;
+
+    private long appendedPointsCount;
+    private long outOfOrderPointsCount;
+
+    // values of one point while a batch is appended
+    private int[] pointValues;
+
+    private List<OnPointsAppendedListener> listeners = new ArrayList<>();
+
+    // capacity is rounded up to a power of two, so labels keep their places while the window slides
+    public LiveChart(List<String> lineIds, List<String> labels, int[] colors, int capacity) {
+        this(roundCapacity(capacity), lineIds, labels, colors);
+    }
+
+    private LiveChart(int roundedCapacity, List<String> lineIds, List<String> labels, int[] colors) {
+        super(
+                lineIds,
+                new long[2 * roundedCapacity],
+                new int[lineIds.size()][2 * roundedCapacity],
+                labels,
+                colors
+        );
+
+        this.capacity = roundedCapacity;
+        this.pointValues = new int[lineIds.size()];
+
+        setPointsWindow(0, 0);
+    }
+
+    private static int roundCapacity(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getAppendedPointsCount() {
+        return appendedPointsCount;
+    }
+
+    public long getOutOfOrderPointsCount() {
+        return outOfOrderPointsCount;
+    }
+
+    public void addOnPointsAppendedListener(OnPointsAppendedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnPointsAppendedListener(OnPointsAppendedListener listener) {
+        listeners.remove(listener);
+    }
+
+    // values holds one value per line
+    public void append(long timestamp, int[] values) {
+        if (isOutOfOrder(timestamp)) {
+            outOfOrderPointsCount++;
+            return;
+        }
+
+        int droppedCount = write(timestamp, values);
+
+        notifyPointsAppended(1, droppedCount);
+    }
+
+    // appends count points at once and notifies the listeners once, timestamps[i] goes with values[line][i]
+    public void append(long[] timestamps, int[][] values, int count) {
+        int appendedCount = 0;
+        int droppedCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (isOutOfOrder(timestamps[i])) {
+                outOfOrderPointsCount++;
+                continue;
+            }
+
+            for (int line = 0; line < values.length; line++) {
+                pointValues[line] = values[line][i];
+            }
+
+            droppedCount += write(timestamps[i], pointValues);
+            appendedCount++;
+        }
+
+        if (appendedCount > 0) {
+            notifyPointsAppended(appendedCount, droppedCount);
+        }
+    }
+
+    private boolean isOutOfOrder(long timestamp) {
+        int count = getPointsCount();
+
+        return count > 0 && timestamp < getAbscissa()[getPointsOffset() + count - 1];
+    }
+
+    // returns the number of dropped points, 0 or 1
+    private int write(long timestamp, int[] values) {
+        int offset = getPointsOffset();
+        int count = getPointsCount();
+        int droppedCount = 0;
+
+        int index;
+
+        if (count < capacity) {
+            index = count;
+            count++;
+        } else {
+            // the oldest point is overwritten and the window moves by one
+            index = offset;
+            offset = (offset + 1) & (capacity - 1);
+            droppedCount = 1;
+        }
+
+        writePoint(index, timestamp, values);
+        writePoint(index + capacity, timestamp, values);
+
+        setPointsWindow(offset, count);
+
+        appendedPointsCount++;
+
+        return droppedCount;
+    }
+
+    private void writePoint(int arrayIndex, long timestamp, int[] values) {
+        long[] abscissa = getAbscissa();
+        int[][] ordinates = getOrdinates();
+
+        abscissa[arrayIndex] = timestamp;
+
+        for (int line = 0; line < ordinates.length; line++) {
+            ordinates[line][arrayIndex] = values[line];
+        }
+
+        onPointChanged(arrayIndex);
+    }
+
+    private void notifyPointsAppended(int appendedCount, int droppedCount) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onPointsAppended(appendedCount, droppedCount);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package ru.vmochalov.vkchart.chart.data;
+
+/**
+ * Multi-resolution min/max summary of one line. Level k splits the line into buckets of 2^k points
+ * and keeps the minimum and maximum of every bucket, level 0 is the line itself.
+ * Drawing a bucket as a vertical min-max segment keeps every spike of the full resolution line.
+ */
+public class MinMaxPyramid {
+
+    private int[] values;
+
+    // index 0 is unused, level 0 is served by values
+    private int[][] min;
+    private int[][] max;
+
+    public MinMaxPyramid(int[] values) {
+        this.values = values;
+
+        int levelsCount = 1;
+        for (int bucketsCount = values.length; bucketsCount > 1; bucketsCount = (bucketsCount + 1) / 2) {
+            levelsCount++;
+        }
+
+        min = new int[levelsCount][];
+        max = new int[levelsCount][];
+
+        int[] previousMin = values;
+        int[] previousMax = values;
+
+        for (int level = 1; level < levelsCount; level++) {
+            int bucketsCount = (previousMin.length + 1) / 2;
+
+            int[] levelMin = new int[bucketsCount];
+            int[] levelMax = new int[bucketsCount];
+
+            for (int b = 0; b < bucketsCount; b++) {
+                int left = 2 * b;
+                int right = Math.min(left + 1, previousMin.length - 1);
+
+                levelMin[b] = Math.min(previousMin[left], previousMin[right]);
+                levelMax[b] = Math.max(previousMax[left], previousMax[right]);
+            }
+
+            min[level] = levelMin;
+            max[level] = levelMax;
+
+            previousMin = levelMin;
+            previousMax = levelMax;
+        }
+    }
+
+    // recalculates the buckets containing the value at index after it has changed, O(levels)
+    public void update(int index) {
+        int[] previousMin = values;
+        int[] previousMax = values;
+        int bucket = index;
+
+        for (int level = 1; level < min.length; level++) {
+            bucket >>= 1;
+
+            int left = 2 * bucket;
+            int right = Math.min(left + 1, previousMin.length - 1);
+
+            min[level][bucket] = Math.min(previousMin[left], previousMin[right]);
+            max[level][bucket] = Math.max(previousMax[left], previousMax[right]);
+
+            previousMin = min[level];
+            previousMax = max[level];
+        }
+    }
+
+    public int getLevelsCount() {
+        return min.length;
+    }
+
+    // the coarsest level whose buckets are not wider than maxBucketWidth, given the distance between points
+    public int getLevelForStep(float xStep, float maxBucketWidth) {
+        int level = 0;
+
+        while (level + 1 < min.length && xStep * (1 << (level + 1)) <= maxBucketWidth) {
+            level++;
+        }
+
+        return level;
+    }
+
+    public int getMin(int level, int bucket) {
+        return level == 0 ? values[bucket] : min[level][bucket];
+    }
+
+    public int getMax(int level, int bucket) {
+        return level == 0 ? values[bucket] : max[level][bucket];
+    }
+
+}
@@ -0,0 +1,136 @@
+package ru.vmochalov.vkchart.chart.data;
+
+/**
+ * Incremental decoder of newline delimited points: "timestamp value0 value1 ..." with the values
+ * separated by spaces, tabs or commas. Bytes may come in chunks of any size, a line split between
+ * chunks is completed by the next one. Malformed lines are skipped and counted, and so are lines whose
+ * timestamp is lower than the one of the latest decoded point, as a chart's timestamps never go back.
+ */
+class PointLineDecoder {
+
+    private int linesCount;
+
+    // the line being decoded
+    private int fieldIndex;
+    private long fieldValue;
+    private boolean fieldNegative;
+    private boolean fieldHasDigits;
+    private boolean lineMalformed;
+    private long lineTimestamp;
+    private int[] lineValues;
+
+    // no timestamp is lower, a timestamp of Long.MIN_VALUE is malformed
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private long malformedLinesCount;
+    private long outOfOrderLinesCount;
+
+    PointLineDecoder(int linesCount) {
+        this.linesCount = linesCount;
+        this.lineValues = new int[linesCount];
+    }
+
+    long getMalformedLinesCount() {
+        return malformedLinesCount;
+    }
+
+    long getOutOfOrderLinesCount() {
+        return outOfOrderLinesCount;
+    }
+
+    // forgets the part of a line decoded so far, for a stream which starts over
+    void discardLine() {
+        fieldIndex = 0;
+        fieldValue = 0;
+        fieldNegative = false;
+        fieldHasDigits = false;
+        lineMalformed = false;
+    }
+
+    // decodes until the bytes end or the batch is full, returns the number of bytes consumed
+    int decode(byte[] buffer, int offset, int length, PointsBatch batch) {
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end && !batch.isFull()) {
+            byte b = buffer[i++];
+
+            if (b >= '0' && b <= '9') {
+                int digit = b - '0';
+
+                // the sign is known before the digits, so the bound applies to the magnitude as it grows
+                if (fieldValue > (getMaxFieldMagnitude() - digit) / 10) {
+                    lineMalformed = true;
+                } else {
+                    fieldValue = fieldValue * 10 + digit;
+                }
+
+                fieldHasDigits = true;
+            } else if (b == ' ' || b == ',' || b == '\t' || b == '\r') {
+                if (fieldHasDigits || fieldNegative) {
+                    endField();
+                }
+            } else if (b == '\n') {
+                if (fieldHasDigits || fieldNegative) {
+                    endField();
+                }
+
+                endLine(batch);
+            } else if (b == '-' && !fieldHasDigits && !fieldNegative) {
+                fieldNegative = true;
+            } else {
+                lineMalformed = true;
+            }
+        }
+
+        return i - offset;
+    }
+
+    // timestamps take any long but Long.MIN_VALUE, values any int
+    private long getMaxFieldMagnitude() {
+        if (fieldIndex == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        return fieldNegative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    }
+
+    private void endField() {
+        if (!fieldHasDigits) {
+            lineMalformed = true;
+        } else if (fieldIndex == 0) {
+            lineTimestamp = fieldNegative ? -fieldValue : fieldValue;
+        } else if (fieldIndex <= linesCount) {
+            lineValues[fieldIndex - 1] = (int) (fieldNegative ? -fieldValue : fieldValue);
+        } else {
+            lineMalformed = true;
+        }
+
+        fieldIndex++;
+        fieldValue = 0;
+        fieldNegative = false;
+        fieldHasDigits = false;
+    }
+
+    private void endLine(PointsBatch batch) {
+        if (!lineMalformed && fieldIndex == linesCount + 1 && lineTimestamp < lastTimestamp) {
+            outOfOrderLinesCount++;
+        } else if (!lineMalformed && fieldIndex == linesCount + 1) {
+            lastTimestamp = lineTimestamp;
+            batch.timestamps[batch.count] = lineTimestamp;
+
+            for (int line = 0; line < linesCount; line++) {
+                batch.values[line][batch.count] = lineValues[line];
+            }
+
+            batch.count++;
+        } else if (lineMalformed || fieldIndex > 0) {
+            // empty lines are allowed
+            malformedLinesCount++;
+        }
+
+        fieldIndex = 0;
+        lineMalformed = false;
+    }
+
+}
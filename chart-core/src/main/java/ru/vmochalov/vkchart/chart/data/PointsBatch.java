@@ -0,0 +1,32 @@
+package ru.vmochalov.vkchart.chart.data;
+
+/**
+ * Points decoded by a data source and not yet appended to the chart. Batches are preallocated
+ * and passed between the reading thread and the main thread, so streaming does not allocate.
+ */
+class PointsBatch {
+
+    final long[] timestamps;
+    // values[line][i] goes with timestamps[i]
+    final int[][] values;
+
+    int count;
+
+    PointsBatch(int linesCount, int capacity) {
+        timestamps = new long[capacity];
+        values = new int[linesCount][capacity];
+    }
+
+    boolean isFull() {
+        return count == timestamps.length;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+}
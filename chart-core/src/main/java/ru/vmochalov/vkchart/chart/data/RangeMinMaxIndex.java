@@ -0,0 +1,95 @@
+package ru.vmochalov.vkchart.chart.data;
+
+/**
+ * Bottom-up segment tree over one line of values. Built once in O(n), answers min and max
+ * of any window in O(log n) without allocation.
+ */
+public class RangeMinMaxIndex {
+
+    private int size;
+
+    // node i covers nodes 2i and 2i + 1, leaves are stored at [size, 2 * size)
+    private int[] max;
+    private int[] min;
+
+    public RangeMinMaxIndex(int[] values) {
+        size = values.length;
+
+        max = new int[2 * size];
+        min = new int[2 * size];
+
+        System.arraycopy(values, 0, max, size, size);
+        System.arraycopy(values, 0, min, size, size);
+
+        rebuild();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // O(log n), for series which change after the index is built
+    public void update(int index, int value) {
+        int i = index + size;
+
+        max[i] = value;
+        min[i] = value;
+
+        for (i >>= 1; i > 0; i >>= 1) {
+            max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+            min[i] = Math.min(min[2 * i], min[2 * i + 1]);
+        }
+    }
+
+    // the value at the index as of the latest build or update
+    int getValue(int index) {
+        return max[index + size];
+    }
+
+    // leaves the nodes above the value stale until rebuild, so most of the values change in O(n) rather than O(n log n)
+    void setValue(int index, int value) {
+        max[index + size] = value;
+        min[index + size] = value;
+    }
+
+    // O(n)
+    void rebuild() {
+        for (int i = size - 1; i > 0; i--) {
+            max[i] = Math.max(max[2 * i], max[2 * i + 1]);
+            min[i] = Math.min(min[2 * i], min[2 * i + 1]);
+        }
+    }
+
+    // fromIndex inclusive, toIndex exclusive; Integer.MIN_VALUE for an empty range
+    public int getMax(int fromIndex, int toIndex) {
+        int result = Integer.MIN_VALUE;
+
+        for (int l = fromIndex + size, r = toIndex + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.max(result, max[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.max(result, max[--r]);
+            }
+        }
+
+        return result;
+    }
+
+    // fromIndex inclusive, toIndex exclusive; Integer.MAX_VALUE for an empty range
+    public int getMin(int fromIndex, int toIndex) {
+        int result = Integer.MAX_VALUE;
+
+        for (int l = fromIndex + size, r = toIndex + size; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.min(result, min[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.min(result, min[--r]);
+            }
+        }
+
+        return result;
+    }
+
+}
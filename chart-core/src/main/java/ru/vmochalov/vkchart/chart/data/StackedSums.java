@@ -0,0 +1,190 @@
+package ru.vmochalov.vkchart.chart.data;
+
+import java.util.Arrays;
+
+/**
+ * Per-point sums of the visible lines of a stacked chart, that is the top of the stack at every point,
+ * with a range index over them, so the highest stack of any window is found in O(log n).
+ * The sums of all the lines are built with the chart, on the thread it is created on. Any other set of
+ * visible lines is derived from the cached set closest to it, adding or subtracting the lines they differ
+ * by, so a legend toggle costs O(n) rather than O(lines * n). The few latest sets are kept, so toggling
+ * lines back and forth and any window query after that do not touch the points again.
+ */
+class StackedSums {
+
+    private static final int CACHE_SIZE = 4;
+
+    private int[][] ordinates;
+
+    // most recently used first, null where nothing is cached yet
+    private boolean[][] cachedVisibilities = new boolean[CACHE_SIZE][];
+    private RangeMinMaxIndex[] cachedIndexes = new RangeMinMaxIndex[CACHE_SIZE];
+
+    // the lines a derived set differs by, with +1 for a line added and -1 for a line removed
+    private int[] changedLines;
+    private int[] changeSigns;
+
+    StackedSums(int[][] ordinates) {
+        this.ordinates = ordinates;
+
+        changedLines = new int[ordinates.length];
+        changeSigns = new int[ordinates.length];
+
+        boolean[] allVisible = new boolean[ordinates.length];
+        Arrays.fill(allVisible, true);
+
+        cachedVisibilities[0] = allVisible;
+        cachedIndexes[0] = new RangeMinMaxIndex(getSums(allVisible));
+    }
+
+    // fromIndex inclusive, toIndex exclusive; Integer.MIN_VALUE for an empty range.
+    // Synchronized, as the primary and the secondary charts query it from their own threads
+    synchronized int getMax(boolean[] lineVisibilities, int fromIndex, int toIndex) {
+        return obtainIndex(lineVisibilities).getMax(fromIndex, toIndex);
+    }
+
+    // called after the value of every line at the given array index has been overwritten, O(log n) per cached set
+    synchronized void update(int arrayIndex) {
+        for (int i = 0; i < CACHE_SIZE && cachedVisibilities[i] != null; i++) {
+            cachedIndexes[i].update(arrayIndex, getSum(cachedVisibilities[i], arrayIndex));
+        }
+    }
+
+    private RangeMinMaxIndex obtainIndex(boolean[] lineVisibilities) {
+        int found = -1;
+
+        for (int i = 0; i < CACHE_SIZE && cachedVisibilities[i] != null; i++) {
+            if (equal(cachedVisibilities[i], lineVisibilities)) {
+                found = i;
+                break;
+            }
+        }
+
+        if (found == -1) {
+            found = derive(lineVisibilities);
+        }
+
+        boolean[] visibilities = cachedVisibilities[found];
+        RangeMinMaxIndex index = cachedIndexes[found];
+
+        // moved to the front
+        System.arraycopy(cachedVisibilities, 0, cachedVisibilities, 1, found);
+        System.arraycopy(cachedIndexes, 0, cachedIndexes, 1, found);
+        cachedVisibilities[0] = visibilities;
+        cachedIndexes[0] = index;
+
+        return index;
+    }
+
+    // returns the cache position of the derived set: a free one, or the one of the least recently used set,
+    // whose arrays are reused; O((changed lines + 1) * n)
+    private int derive(boolean[] lineVisibilities) {
+        int cachedCount = 0;
+        int closest = 0;
+        int closestDistance = Integer.MAX_VALUE;
+        int distance;
+
+        for (int i = 0; i < CACHE_SIZE && cachedVisibilities[i] != null; i++) {
+            cachedCount++;
+            distance = getDistance(cachedVisibilities[i], lineVisibilities);
+
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+
+        int changesCount = 0;
+        boolean[] closestVisibilities = cachedVisibilities[closest];
+
+        for (int i = 0; i < ordinates.length; i++) {
+            if (closestVisibilities[i] != lineVisibilities[i]) {
+                changedLines[changesCount] = i;
+                changeSigns[changesCount] = lineVisibilities[i] ? 1 : -1;
+                changesCount++;
+            }
+        }
+
+        int target = Math.min(cachedCount, CACHE_SIZE - 1);
+        RangeMinMaxIndex source = cachedIndexes[closest];
+        RangeMinMaxIndex index = target < cachedCount ? cachedIndexes[target] : null;
+
+        if (index == null) {
+            index = new RangeMinMaxIndex(new int[source.size()]);
+        }
+
+        long sum;
+
+        // in place when the closest set is the least recently used one
+        for (int j = 0; j < source.size(); j++) {
+            sum = source.getValue(j);
+
+            if (sum == Integer.MAX_VALUE || sum == Integer.MIN_VALUE) {
+                // a clamped sum is not the exact one to start from
+                index.setValue(j, getSum(lineVisibilities, j));
+                continue;
+            }
+
+            for (int k = 0; k < changesCount; k++) {
+                sum += changeSigns[k] * (long) ordinates[changedLines[k]][j];
+            }
+
+            index.setValue(j, clamp(sum));
+        }
+
+        index.rebuild();
+
+        if (cachedVisibilities[target] == null) {
+            cachedVisibilities[target] = lineVisibilities.clone();
+        } else {
+            System.arraycopy(lineVisibilities, 0, cachedVisibilities[target], 0, lineVisibilities.length);
+        }
+        cachedIndexes[target] = index;
+
+        return target;
+    }
+
+    private int[] getSums(boolean[] lineVisibilities) {
+        int[] sums = new int[ordinates.length == 0 ? 0 : ordinates[0].length];
+
+        for (int j = 0; j < sums.length; j++) {
+            sums[j] = getSum(lineVisibilities, j);
+        }
+
+        return sums;
+    }
+
+    private int getSum(boolean[] lineVisibilities, int arrayIndex) {
+        long sum = 0;
+
+        for (int i = 0; i < ordinates.length; i++) {
+            if (lineVisibilities[i]) {
+                sum += ordinates[i][arrayIndex];
+            }
+        }
+
+        return clamp(sum);
+    }
+
+    // a stack higher than an int can hold is drawn cut rather than upside down
+    private static int clamp(long sum) {
+        return (int) Math.max(Math.min(sum, Integer.MAX_VALUE), Integer.MIN_VALUE);
+    }
+
+    private static int getDistance(boolean[] first, boolean[] second) {
+        int distance = 0;
+
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                distance++;
+            }
+        }
+
+        return distance;
+    }
+
+    private static boolean equal(boolean[] first, boolean[] second) {
+        return getDistance(first, second) == 0;
+    }
+
+}
@@ -0,0 +1,35 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+/**
+ * Which X labels are shown at a zoom. At scale s every 2^s-th point is labeled: 0 - all of them,
+ * 1 - every second, 2 - every 4th and so on. A label is tied to the array index of its point,
+ * so labels stay on their points while a live chart slides.
+ */
+public class LabelScale {
+
+    private LabelScale() {
+    }
+
+    // the smallest scale whose neighbour labels keep minDistance apart even for the widest label
+    public static int getScale(float maxLabelWidth, float minDistance, float xStep, int pointsCount) {
+        if (pointsCount < 2 || xStep <= 0) return 0;
+
+        int maxScale = 32 - Integer.numberOfLeadingZeros(pointsCount - 1);
+
+        double requiredStepsCount = Math.ceil((maxLabelWidth + minDistance) / xStep);
+
+        if (requiredStepsCount <= 1) return 0;
+        if (requiredStepsCount >= (1L << maxScale)) return maxScale;
+
+        return 32 - Integer.numberOfLeadingZeros((int) requiredStepsCount - 1);
+    }
+
+    public static int getMask(int scale) {
+        return (int) ((1L << scale) - 1);
+    }
+
+    public static boolean isVisible(int arrayIndex, int mask) {
+        return (arrayIndex & mask) == 0;
+    }
+
+}
@@ -0,0 +1,149 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+import ru.vmochalov.vkchart.chart.data.MinMaxPyramid;
+
+/**
+ * The segments of a line for a span of points in data space: x is the timestamp relative to the first
+ * point of the span, y is the value. Built once from the points and the pyramid, then every frame the
+ * visible slice is mapped to the screen by a scale and an offset, so panning within the span and scaling
+ * the values read no data. Mapping is still a pass over the visible segments, which the detail level
+ * keeps within a few per pixel whatever the number of points. Segments are x0, y0, x1, y1 as
+ * Canvas.drawLines takes them.
+ */
+public class LineGeometry {
+
+    private boolean built;
+
+    private int firstIndex;
+    private int detailLevel;
+    private int firstBucket;
+    private int lastBucket;
+
+    // grow-only, reallocated only when the span gets more segments than ever before
+    private float[] segments = new float[0];
+
+    public void invalidate() {
+        built = false;
+    }
+
+    public boolean contains(int firstVisibleIndex, int lastVisibleIndex, int detailLevel) {
+        return built
+                && this.detailLevel == detailLevel
+                && (firstVisibleIndex >> detailLevel) >= firstBucket
+                && (lastVisibleIndex >> detailLevel) <= lastBucket;
+    }
+
+    public void build(long[] abscissa, int[] ordinate, MinMaxPyramid pyramid, int firstIndex, int lastIndex, int detailLevel) {
+        this.detailLevel = detailLevel;
+        this.firstBucket = firstIndex >> detailLevel;
+        this.lastBucket = lastIndex >> detailLevel;
+        // bucket aligned, so a bucket of the span is the bucket of the pyramid
+        this.firstIndex = firstBucket << detailLevel;
+
+        int size = (lastBucket - firstBucket + 1) * (detailLevel == 0 ? 4 : 8);
+
+        if (segments.length < size) {
+            segments = new float[size];
+        }
+
+        if (detailLevel == 0) {
+            buildPoints(abscissa, ordinate, lastIndex);
+        } else {
+            buildBuckets(abscissa, ordinate, pyramid);
+        }
+
+        built = true;
+    }
+
+    // segment k joins the points firstIndex + k and firstIndex + k + 1
+    private void buildPoints(long[] abscissa, int[] ordinate, int lastIndex) {
+        int segmentsIndex = 0;
+        long originTimestamp = abscissa[firstIndex];
+        float previousX = 0;
+        float previousY = ordinate[firstIndex];
+        float nextX;
+        float nextY;
+
+        for (int j = firstIndex + 1; j <= lastIndex; j++) {
+            nextX = abscissa[j] - originTimestamp;
+            nextY = ordinate[j];
+
+            segments[segmentsIndex++] = previousX;
+            segments[segmentsIndex++] = previousY;
+            segments[segmentsIndex++] = nextX;
+            segments[segmentsIndex++] = nextY;
+
+            previousX = nextX;
+            previousY = nextY;
+        }
+    }
+
+    // bucket k is a joint with the previous bucket followed by its min-max segment, the first joint is empty
+    private void buildBuckets(long[] abscissa, int[] ordinate, MinMaxPyramid pyramid) {
+        int segmentsIndex = 0;
+        int bucketSize = 1 << detailLevel;
+        long originTimestamp = abscissa[firstIndex];
+
+        float previousX = 0;
+        float previousY = ordinate[firstIndex];
+        float x;
+        int bucketStart;
+        int bucketEnd;
+
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            bucketStart = b * bucketSize;
+            bucketEnd = Math.min(bucketStart + bucketSize, ordinate.length) - 1;
+            x = abscissa[bucketStart] - originTimestamp;
+
+            segments[segmentsIndex++] = b == firstBucket ? x : previousX;
+            segments[segmentsIndex++] = previousY;
+            segments[segmentsIndex++] = x;
+            segments[segmentsIndex++] = ordinate[bucketStart];
+
+            segments[segmentsIndex++] = x;
+            segments[segmentsIndex++] = pyramid.getMin(detailLevel, b);
+            segments[segmentsIndex++] = x;
+            segments[segmentsIndex++] = pyramid.getMax(detailLevel, b);
+
+            previousX = abscissa[bucketEnd] - originTimestamp;
+            previousY = ordinate[bucketEnd];
+        }
+    }
+
+    // array index of the point the x of the segments is relative to
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public float[] getSegments() {
+        return segments;
+    }
+
+    // index in getSegments of the first float to draw the visible points from
+    public int getOffset(int firstVisibleIndex) {
+        if (detailLevel == 0) {
+            return (firstVisibleIndex - firstIndex) * 4;
+        }
+
+        // the joint of the first visible bucket leads to a bucket which is not drawn
+        return ((firstVisibleIndex >> detailLevel) - firstBucket) * 8 + 4;
+    }
+
+    // number of floats to draw the visible points from
+    public int getLength(int firstVisibleIndex, int lastVisibleIndex) {
+        if (detailLevel == 0) {
+            return (lastVisibleIndex - firstVisibleIndex) * 4;
+        }
+
+        return ((lastVisibleIndex >> detailLevel) - (firstVisibleIndex >> detailLevel)) * 8 + 4;
+    }
+
+    // writes the visible slice in screen coordinates into points from index 0: x0 + x * xScale, y0 - y * yStep
+    public void map(int offset, int length, float x0, float xScale, float y0, float yStep, float[] points) {
+        for (int k = 0; k < length; k += 2) {
+            points[k] = x0 + segments[offset + k] * xScale;
+            points[k + 1] = y0 - segments[offset + k + 1] * yStep;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+/**
+ * The visible points of a chart and the way they are mapped to screen coordinates. Indexes are array
+ * indexes of the lines, which are shifted for a live chart. The x of a point comes from its timestamp,
+ * so irregularly sampled points keep their distances. When several points fall into a pixel, the lines
+ * are drawn from the buckets of a detail level instead of point by point.
+ */
+public class LineProjection {
+
+    private long[] abscissa;
+    private long originTimestamp;
+    private float x0;
+    private float xScale;
+    private int firstIndex;
+    private int lastIndex;
+    private int detailLevel;
+
+    private float bottomY;
+    private float yStep;
+
+    // the point of originTimestamp is drawn at x0, every millisecond after it adds xScale
+    public void setHorizontal(
+            long[] abscissa,
+            long originTimestamp,
+            float x0,
+            float xScale,
+            int firstIndex,
+            int lastIndex,
+            int detailLevel
+    ) {
+        this.abscissa = abscissa;
+        this.originTimestamp = originTimestamp;
+        this.x0 = x0;
+        this.xScale = xScale;
+        this.firstIndex = firstIndex;
+        this.lastIndex = lastIndex;
+        this.detailLevel = detailLevel;
+    }
+
+    public void setVertical(float bottomY, float yStep) {
+        this.bottomY = bottomY;
+        this.yStep = yStep;
+    }
+
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public int getLastIndex() {
+        return lastIndex;
+    }
+
+    public int getDetailLevel() {
+        return detailLevel;
+    }
+
+    // number of floats the segments of the visible points of a line take at most with the current horizontal params
+    public int getBufferSize() {
+        int segmentsCount;
+
+        if (detailLevel == 0) {
+            segmentsCount = lastIndex - firstIndex + 1;
+        } else {
+            // a joint with the previous bucket and a min-max segment per bucket
+            segmentsCount = 2 * ((lastIndex >> detailLevel) - (firstIndex >> detailLevel) + 1);
+        }
+
+        return segmentsCount * 4;
+    }
+
+    public float getX(int index) {
+        return x0 + (abscissa[index] - originTimestamp) * xScale;
+    }
+
+    public float getY(float value) {
+        return bottomY - value * yStep;
+    }
+
+}
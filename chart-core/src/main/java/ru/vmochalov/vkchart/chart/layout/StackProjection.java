@@ -0,0 +1,103 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+/**
+ * Maps the visible points of a bar or an area chart to screen coordinates, every point of a line as
+ * x, bottom, x, top: a bar for Canvas.drawLines with the bar width as the stroke width, or a side of
+ * the area between two neighbouring points. The lines of a stacked chart start where the previous one ends.
+ * Every line is scaled by a factor of its own, so a line being hidden shrinks and the ones above it move down.
+ * When several points fall into a pixel, the first point of every bucket of the detail level is drawn.
+ */
+public class StackProjection {
+
+    private static final float PERCENTAGE_MAX_VALUE = 100;
+
+    // per line, grow-only, reallocated only when more points become visible than ever before
+    private float[][] points = new float[0][];
+
+    public float[] getPoints(int lineIndex) {
+        return points[lineIndex];
+    }
+
+    // returns the number of floats written for every line; lineScales are from 0 for a hidden line to 1
+    public int project(
+            int[][] ordinates,
+            float[] lineScales,
+            boolean stacked,
+            boolean percentage,
+            LineProjection projection
+    ) {
+        int linesCount = ordinates.length;
+        int detailLevel = projection.getDetailLevel();
+        int step = 1 << detailLevel;
+        // aligned to the buckets, so the drawn points stay the same while panning
+        int firstIndex = projection.getFirstIndex() >> detailLevel << detailLevel;
+        int lastIndex = projection.getLastIndex();
+
+        ensureCapacity(linesCount, ((lastIndex - firstIndex) / step + 1) * 4);
+
+        int pointsIndex = 0;
+        float x;
+        float valuesScale;
+        float total;
+        float bottom;
+        float top;
+        float[] linePoints;
+
+        for (int j = firstIndex; j <= lastIndex; j += step) {
+            x = projection.getX(j);
+            valuesScale = 1;
+
+            if (percentage) {
+                total = 0;
+                for (int i = 0; i < linesCount; i++) {
+                    total += ordinates[i][j] * lineScales[i];
+                }
+                valuesScale = total == 0 ? 0 : PERCENTAGE_MAX_VALUE / total;
+            }
+
+            bottom = 0;
+
+            for (int i = 0; i < linesCount; i++) {
+                top = ordinates[i][j] * lineScales[i] * valuesScale;
+
+                if (stacked) {
+                    top += bottom;
+                }
+
+                linePoints = points[i];
+                linePoints[pointsIndex] = x;
+                linePoints[pointsIndex + 1] = projection.getY(bottom);
+                linePoints[pointsIndex + 2] = x;
+                linePoints[pointsIndex + 3] = projection.getY(top);
+
+                if (stacked) {
+                    bottom = top;
+                }
+            }
+
+            pointsIndex += 4;
+        }
+
+        return pointsIndex;
+    }
+
+    private void ensureCapacity(int linesCount, int size) {
+        if (points.length < linesCount) {
+            float[][] grown = new float[linesCount][];
+
+            System.arraycopy(points, 0, grown, 0, points.length);
+            for (int i = points.length; i < linesCount; i++) {
+                grown[i] = new float[0];
+            }
+
+            points = grown;
+        }
+
+        for (int i = 0; i < linesCount; i++) {
+            if (points[i].length < size) {
+                points[i] = new float[size];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package ru.vmochalov.vkchart.chart.layout;
+
+import ru.vmochalov.vkchart.chart.data.Chart;
+
+/**
+ * Maps the timestamps of a chart to x, so irregularly sampled points are drawn where they belong in time.
+ * The visible range is a fraction of the time between the first and the last point, and the visible
+ * points are found by binary search over the timestamps.
+ */
+public class TimeScale {
+
+    private Chart chart;
+
+    private long[] abscissa;
+    private int pointsOffset;
+
+    // the first point is drawn at x0, every millisecond after it adds xScale
+    private long originTimestamp;
+    private float x0;
+    private float xScale;
+
+    // point indexes, including the points just outside the view as the lines going to them are visible
+    private int firstVisiblePointIndex;
+    private int lastVisiblePointIndex;
+
+    // expects at least two points
+    public void set(Chart chart, float width, double startPercent, double endPercent) {
+        this.chart = chart;
+
+        abscissa = chart.getAbscissa();
+        pointsOffset = chart.getPointsOffset();
+
+        int lastPointIndex = chart.getPointsCount() - 1;
+        originTimestamp = chart.getTimestamp(0);
+        long duration = Math.max(chart.getTimestamp(lastPointIndex) - originTimestamp, 1);
+
+        double enlargedWidth = width / (endPercent - startPercent);
+
+        xScale = (float) (enlargedWidth / duration);
+        x0 = (float) (-enlargedWidth * startPercent);
+
+        firstVisiblePointIndex = Math.max(chart.findPointIndex(getTimestamp(0)) - 1, 0);
+        lastVisiblePointIndex = Math.min(chart.findPointIndex(getTimestamp(width)), lastPointIndex);
+    }
+
+    public long getOriginTimestamp() {
+        return originTimestamp;
+    }
+
+    public float getX0() {
+        return x0;
+    }
+
+    public float getXScale() {
+        return xScale;
+    }
+
+    public int getFirstVisiblePointIndex() {
+        return firstVisiblePointIndex;
+    }
+
+    public int getLastVisiblePointIndex() {
+        return lastVisiblePointIndex;
+    }
+
+    public float getX(int pointIndex) {
+        return x0 + (abscissa[pointsOffset + pointIndex] - originTimestamp) * xScale;
+    }
+
+    public long getTimestamp(float x) {
+        return originTimestamp + Math.round((x - x0) / (double) xScale);
+    }
+
+    // average distance between the visible points, the points are evenly spaced only when sampled so
+    public float getPointWidth() {
+        int visibleCount = lastVisiblePointIndex - firstVisiblePointIndex;
+
+        if (visibleCount == 0) return 0;
+
+        return (getX(lastVisiblePointIndex) - getX(firstVisiblePointIndex)) / visibleCount;
+    }
+
+    // O(log n)
+    public int getClosestPointIndex(float x) {
+        int lastPointIndex = chart.getPointsCount() - 1;
+        long timestamp = getTimestamp(x);
+
+        int index = chart.findPointIndex(timestamp);
+
+        if (index > lastPointIndex) return lastPointIndex;
+        if (index == 0) return 0;
+
+        // the closest one is either the first point not earlier than the touch or the one before it
+        long after = abscissa[pointsOffset + index] - timestamp;
+        long before = timestamp - abscissa[pointsOffset + index - 1];
+
+        return before <= after ? index - 1 : index;
+    }
+
+}